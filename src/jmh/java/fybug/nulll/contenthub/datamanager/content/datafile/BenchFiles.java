@@ -0,0 +1,99 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * <h2>基准测试用的文件工具.</h2>
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+final
+class BenchFiles {
+    private
+    BenchFiles() {}
+
+    /**
+     * 生成固定内容的数据
+     *
+     * @param size 数据大小
+     *
+     * @return 数据
+     */
+    static
+    byte[] payload(int size) {
+        var b = new byte[size];
+        new Random(size).nextBytes(b);
+        return b;
+    }
+
+    /**
+     * 创建临时的数据根目录
+     *
+     * @return 目录路径，可通过系统属性 {@code bench.dir} 指定所在的文件夹
+     *
+     * @throws IOException 文件系统错误
+     */
+    static
+    Path tempRoot() throws IOException {
+        var base = System.getProperty("bench.dir");
+        return base == null ? Files.createTempDirectory("chdm-bench")
+                            : Files.createTempDirectory(Files.createDirectories(Path.of(base)), "chdm-bench");
+    }
+
+    /**
+     * 删除文件夹
+     * <p>
+     * 后台的记录整理可能仍在写入，删除失败时重新扫描
+     *
+     * @param root 文件夹路径
+     *
+     * @throws IOException 文件系统错误
+     */
+    static
+    void delete(Path root) throws IOException {
+        for ( int i = 0; ; i++ ){
+            try {
+                deleteTree(root);
+                return;
+            } catch ( DirectoryNotEmptyException e ) {
+                if (i >= 10)
+                    throw e;
+                try {
+                    Thread.sleep(50);
+                } catch ( InterruptedException ex ) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /** 删除文件夹 */
+    private static
+    void deleteTree(Path root) throws IOException {
+        if (root == null || !Files.exists(root))
+            return;
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public
+            FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public
+            FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+
+/**
+ * <h2>{@link FileManager} 基准测试.</h2>
+ * <p>
+ * 在临时目录中测试单个数据的存放、读取与移除，数据大小由 {@link #size} 指定<br/>
+ * 需要预先准备文件的操作在每次调用前准备，准备的耗时不计入结果
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public
+class FileManagerBench {
+    /** 预先存放的数据数量 */
+    static final int PRELOAD = 256;
+    /** 每个线程轮流使用的 id 数量，限制磁盘占用 */
+    static final int ROTATE = 64;
+
+    /** 数据大小 */
+    @Param( { "1024", "65536", "1048576" } ) int size;
+
+    /** 数据根目录 */
+    Path root;
+    /** 文件管理器 */
+    FileManager fm;
+    /** 数据内容 */
+    byte[] payload;
+    /** 线程 id 区间的分配 */
+    final AtomicInteger slots = new AtomicInteger();
+
+    @Setup( Level.Trial )
+    public
+    void setup() throws Exception {
+        root = BenchFiles.tempRoot();
+        fm = new FileManager(new DataHub(1), root);
+        payload = BenchFiles.payload(size);
+        for ( int i = 0; i < PRELOAD; i++ )
+            fm.putFile(i, temp(i));
+    }
+
+    @TearDown( Level.Trial )
+    public
+    void teardown() throws Exception { BenchFiles.delete(root); }
+
+    /** 写入临时文件 */
+    File temp(int id) throws Exception { return fm.putTemp(id, new ByteArrayInputStream(payload)); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>线程内的操作数据.</h2>
+     * <p>
+     * 每个线程使用独立的 id 区间，每次调用前准备好临时文件或数据
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @State( Scope.Thread )
+    public static
+    class Slot {
+        /** 区间起点 */
+        int base;
+        /** 当前 id */
+        int id;
+        /** 准备的临时文件 */
+        File tmp;
+        /** 调用次数 */
+        int n = 0;
+
+        @Setup( Level.Trial )
+        public
+        void setup(FileManagerBench b) { base = PRELOAD + b.slots.getAndIncrement() * ROTATE; }
+
+        /** 准备临时文件 */
+        void prepare(FileManagerBench b) throws Exception {
+            id = base + (n++ % ROTATE);
+            tmp = b.temp(id);
+        }
+    }
+
+    /** 准备 {@link #putFile(Slot)} 的临时文件 */
+    @State( Scope.Thread )
+    public static
+    class PutSlot extends Slot {
+        @Setup( Level.Invocation )
+        public
+        void next(FileManagerBench b) throws Exception { prepare(b); }
+    }
+
+    /** 准备 {@link #removeData(RemoveSlot)} 的数据 */
+    @State( Scope.Thread )
+    public static
+    class RemoveSlot extends Slot {
+        @Setup( Level.Invocation )
+        public
+        void next(FileManagerBench b) throws Exception {
+            prepare(b);
+            b.fm.putFile(id, tmp);
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 写入临时文件，随后删除 */
+    @Benchmark
+    public
+    long putTemp() throws Exception {
+        var f = temp(ThreadLocalRandom.current().nextInt(PRELOAD));
+        var len = f.length();
+        Files.delete(f.toPath());
+        return len;
+    }
+
+    /** 将准备好的临时文件存放为数据 */
+    @Benchmark
+    public
+    void putFile(PutSlot s) throws Exception { fm.putFile(s.id, s.tmp); }
+
+    /** 完整读取随机的数据 */
+    @Benchmark
+    public
+    long getData() throws Exception {
+        try ( var in = fm.getData(ThreadLocalRandom.current().nextInt(PRELOAD)) ) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /** 移除准备好的数据 */
+    @Benchmark
+    public
+    void removeData(RemoveSlot s) throws Exception { fm.removeData(s.id); }
+}
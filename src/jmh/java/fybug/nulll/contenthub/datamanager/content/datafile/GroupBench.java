@@ -0,0 +1,163 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+
+/**
+ * <h2>{@link Group} 基准测试.</h2>
+ * <p>
+ * 在临时目录中创建一个有 {@link #members} 个数据的组，测试组内数据的放入、读取、列出与移除<br/>
+ * 放入的数据在每轮结束后移除，使组的大小保持不变
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public
+class GroupBench {
+    /** 组的 id */
+    static final int GROUP = 1;
+
+    /** 组内数据数量 */
+    @Param( { "100", "10000" } ) int members;
+    /** 数据大小 */
+    @Param( { "4096", "65536" } ) int size;
+
+    /** 数据根目录 */
+    Path root;
+    /** 文件管理器 */
+    FileManager fm;
+    /** 测试的组 */
+    Group group;
+    /** 数据内容 */
+    byte[] payload;
+    /** 预先放入的组内 id */
+    int[] ids;
+    /** 测试中放入的组内 id */
+    final ConcurrentLinkedQueue<Integer> added = new ConcurrentLinkedQueue<>();
+
+    @Setup( Level.Trial )
+    public
+    void setup() throws Exception {
+        root = BenchFiles.tempRoot();
+        fm = new FileManager(new DataHub(1), root);
+        payload = BenchFiles.payload(size);
+        group = fm.createGroup(GROUP);
+
+        var files = new ArrayList<File>(members);
+        for ( int i = 0; i < members; i++ )
+            files.add(temp());
+        ids = group.putAll(files);
+    }
+
+    /** 移除本轮放入的数据 */
+    @TearDown( Level.Iteration )
+    public
+    void trim() throws Exception {
+        var list = new ArrayList<Integer>();
+        Integer id;
+        while( (id = added.poll()) != null )
+            list.add(id);
+        group.removeData(list);
+    }
+
+    @TearDown( Level.Trial )
+    public
+    void teardown() throws Exception { BenchFiles.delete(root); }
+
+    /** 写入临时文件 */
+    File temp() throws Exception { return fm.putTemp(GROUP, new ByteArrayInputStream(payload)); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>准备 {@link #putData(PutSlot)} 的临时文件.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @State( Scope.Thread )
+    public static
+    class PutSlot {
+        /** 准备的临时文件 */
+        File tmp;
+
+        @Setup( Level.Invocation )
+        public
+        void next(GroupBench b) throws Exception { tmp = b.temp(); }
+    }
+
+    /**
+     * <h2>准备 {@link #removeData(RemoveSlot)} 的数据.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @State( Scope.Thread )
+    public static
+    class RemoveSlot {
+        /** 准备的组内 id */
+        int[] id;
+
+        @Setup( Level.Invocation )
+        public
+        void next(GroupBench b) throws Exception { id = new int[]{b.group.putData(b.temp())}; }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 放入准备好的临时文件 */
+    @Benchmark
+    public
+    int putData(PutSlot s) throws Exception {
+        var id = group.putData(s.tmp);
+        added.add(id);
+        return id;
+    }
+
+    /** 完整读取随机的组内数据 */
+    @Benchmark
+    public
+    long readData() throws Exception {
+        try ( var in = group.readData(ids[ThreadLocalRandom.current().nextInt(ids.length)]) ) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /** 列出组内所有 id */
+    @Benchmark
+    public
+    void listDataId(Blackhole bh) throws Exception { group.forEachDataId(bh::consume); }
+
+    /** 移除准备好的数据 */
+    @Benchmark
+    public
+    void removeData(RemoveSlot s) throws Exception { group.removeData(s.id); }
+}
@@ -0,0 +1,81 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+
+/**
+ * <h2>{@link DataLayout} 基准测试.</h2>
+ * <p>
+ * 在使用 {@link #layout} 层子目录的根目录中预先创建 {@link #entries} 个空的数据条目，
+ * 测试按 id 查找单个数据与遍历全部数据的耗时<br/>
+ * 条目直接在布局的位置创建，不经过临时文件，数量很大时准备需要较长时间，可通过 {@code -p entries=} 选择数量
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 2, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public
+class LayoutBench {
+    /** 子目录层数 */
+    @Param( { "0", "2" } ) int layout;
+    /** 数据条目数量 */
+    @Param( { "10000", "100000", "1000000", "10000000" } ) int entries;
+
+    /** 数据根目录 */
+    Path root;
+    /** 文件管理器 */
+    FileManager fm;
+
+    @Setup( Level.Trial )
+    public
+    void setup() throws Exception {
+        root = BenchFiles.tempRoot();
+        var l = DataLayout.hashed(layout);
+        fm = new FileManager(new DataHub(1), root, l);
+        for ( int i = 0; i < entries; i++ ){
+            var pa = l.resolve(root, "da_", i);
+            if (layout != 0 && !Files.isDirectory(pa.getParent()))
+                Files.createDirectories(pa.getParent());
+            Files.createFile(pa);
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public
+    void teardown() throws Exception { BenchFiles.delete(root); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 查找随机的数据 */
+    @Benchmark
+    public
+    Path lookup() throws Exception { return fm.getDatapath(ThreadLocalRandom.current().nextInt(entries)); }
+
+    /** 遍历全部数据 */
+    @Benchmark
+    public
+    void list(Blackhole bh) throws Exception { fm.scan(root, "da_", bh::consume); }
+}
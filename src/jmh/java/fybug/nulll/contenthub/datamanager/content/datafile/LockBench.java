@@ -0,0 +1,78 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fybug.nulll.pdcache.PDCache;
+import fybug.nulll.pdcache.supplier.memory.SMapCache;
+import fybug.nulll.pdconcurrent.SyLock;
+
+/**
+ * <h2>id 锁争用基准测试.</h2>
+ * <p>
+ * 多个线程对随机的 id 获取读锁或写锁并执行很短的操作，对比 {@link StripedLock} 与原来按 id 创建锁的 {@link SMapCache}<br/>
+ * 线程数通过 {@code -t} 指定，例如 {@code gradle jmh -Pjmh.include=LockBench -Pjmh.threads=1,4,16,64}
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 2, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public
+class LockBench {
+    /** 锁内操作的耗时单位 */
+    static final int WORK = 32;
+
+    /** 锁的实现，{@code striped} 为分段锁表，{@code map} 为按 id 创建锁 */
+    @Param( { "striped", "map" } ) String impl;
+    /** 使用的 id 数量 */
+    @Param( { "1024", "1048576" } ) int ids;
+
+    /** 分段锁表 */
+    StripedLock striped;
+    /** 按 id 创建的锁 */
+    SMapCache<Integer, SyLock> map;
+
+    @Setup
+    public
+    void setup() {
+        if (impl.equals("map"))
+            map = PDCache.SMapCache(Integer.class, SyLock.class).createdata(id -> SyLock.newRWLock()).build();
+        else
+            striped = new StripedLock("bench");
+    }
+
+    /** 获取随机 id 的锁 */
+    SyLock lock() throws Exception {
+        var id = ThreadLocalRandom.current().nextInt(ids);
+        return map == null ? striped.get(id) : map.get(id);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 在读锁中执行 */
+    @Benchmark
+    public
+    void read() throws Exception { lock().read(() -> Blackhole.consumeCPU(WORK)); }
+
+    /** 在写锁中执行 */
+    @Benchmark
+    public
+    void write() throws Exception { lock().write(() -> Blackhole.consumeCPU(WORK)); }
+}
@@ -0,0 +1,121 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <h2>{@link FileManager#putTemp(int, InputStream)} 传输基准测试.</h2>
+ * <p>
+ * 从同一个源文件写入临时文件，对比不同来源的传输方式，结果为每次写入 {@link #size} 字节的耗时
+ * <ul>
+ * <li>{@code stream} 普通的输入流，使用复用的缓冲区复制</li>
+ * <li>{@code file} 文件流，通过文件通道直接传输</li>
+ * <li>{@code channel} 非文件的通道，使用复用的直接缓冲区传输</li>
+ * </ul>
+ * 写入的临时文件在每次调用后删除，删除的耗时不计入结果
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public
+class PutTempBench {
+    /** 数据来源 */
+    @Param( { "stream", "file", "channel" } ) String source;
+    /** 数据大小 */
+    @Param( { "1024", "1048576", "67108864", "1073741824" } ) long size;
+
+    /** 数据根目录 */
+    Path root;
+    /** 文件管理器 */
+    FileManager fm;
+    /** 源文件 */
+    Path src;
+    /** 本次写入的临时文件 */
+    Path tmp;
+
+    @Setup( Level.Trial )
+    public
+    void setup() throws Exception {
+        root = BenchFiles.tempRoot();
+        fm = new FileManager(new DataHub(1), root);
+        src = root.resolve("source");
+
+        /* 分块写入源文件，避免占用与数据同样大的内存 */
+        var block = ByteBuffer.wrap(BenchFiles.payload((int) Math.min(size, 1 << 20)));
+        try ( var ch = FileChannel.open(src, CREATE, WRITE) ) {
+            for ( long pos = 0; pos < size; ){
+                block.clear().limit((int) Math.min(block.capacity(), size - pos));
+                while( block.hasRemaining() )
+                    pos += ch.write(block);
+            }
+        }
+    }
+
+    @TearDown( Level.Invocation )
+    public
+    void clean() throws IOException {
+        if (tmp != null)
+            Files.deleteIfExists(tmp);
+        tmp = null;
+    }
+
+    @TearDown( Level.Trial )
+    public
+    void teardown() throws Exception { BenchFiles.delete(root); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 写入临时文件 */
+    @Benchmark
+    public
+    long putTemp() throws Exception {
+        switch ( source ) {
+            case "file":
+                try ( var in = new FileInputStream(src.toFile()) ) {
+                    tmp = fm.putTemp(0, in).toPath();
+                }
+                break;
+            case "channel":
+                try ( var ch = Channels.newChannel(Files.newInputStream(src)) ) {
+                    tmp = fm.putTemp(0, ch).toPath();
+                }
+                break;
+            default:
+                try ( var in = Files.newInputStream(src) ) {
+                    tmp = fm.putTemp(0, in).toPath();
+                }
+        }
+        return Files.size(tmp);
+    }
+}
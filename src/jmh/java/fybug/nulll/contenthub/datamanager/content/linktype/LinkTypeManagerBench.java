@@ -0,0 +1,86 @@
+package fybug.nulll.contenthub.datamanager.content.linktype;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>{@link LinkTypeManager#getPass(int)} 基准测试.</h2>
+ * <p>
+ * 按顺序轮流获取所有类型的处理器，与按照处理类型与名称逐层查找 {@link Map} 的方式对比
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public
+class LinkTypeManagerBench {
+    /** 类型数量 */
+    static final int TYPES = 15;
+
+    /** 测试的管理器 */
+    LinkTypeManager manager;
+    /** 类型列表 */
+    LinktypeR[] types;
+    /** 逐层查找用的处理器表 */
+    Map<String, Map<String, DataIOofType>> passMap;
+    /** 当前类型 id */
+    int id = 0;
+
+    @Setup
+    public
+    void setup() {
+        manager = new LinkTypeManager();
+        types = new LinktypeR[TYPES];
+        passMap = new HashMap<>();
+        for ( int i = 0; i < TYPES; i++ ){
+            types[i] = manager.getLinkType(i + 1);
+            var pass = manager.getPass(i + 1);
+            if (pass != null)
+                passMap.computeIfAbsent(types[i].getType(), k -> new HashMap<>()).put(types[i].getName(), pass);
+        }
+    }
+
+    /** 下一个类型 id */
+    int next() { return id = id % TYPES + 1; }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 通过数组获取 */
+    @Benchmark
+    public
+    DataIOofType getPass() { return manager.getPass(next()); }
+
+    /** 获取字节形式 */
+    @Benchmark
+    public
+    DataIOofBytes getPassBytes() { return manager.getPass(next(), DataIOofBytes.class); }
+
+    /** 逐层查找 {@link Map} */
+    @Benchmark
+    public
+    DataIOofType nestedMap() {
+        var linktype = types[next() - 1];
+        DataIOofType pass = null;
+        if (passMap.containsKey(linktype.getType())) {
+            var map = passMap.get(linktype.getType());
+            pass = map.getOrDefault(linktype.getName(), map.get("default"));
+        }
+        return pass;
+    }
+}
@@ -0,0 +1,99 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>{@link IntLongMap} 基准测试.</h2>
+ * <p>
+ * 在保持 {@link #size} 个条目的映射中放入并移除一个新的键，再读取一个已有的键，与 {@link HashMap} 对比<br/>
+ * 键按照 {@link #order} 的顺序访问，{@link HashMap} 的散列会让连续的键落在相邻的位置，所以分别测试连续与随机的顺序<br/>
+ * 每次操作分配的字节数需要使用 {@code -prof gc} 查看 {@code gc.alloc.rate.norm}
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public
+class IntLongMapBench {
+    /** 映射的实现 */
+    @Param( { "IntLongMap", "HashMap" } ) String impl;
+    /** 保持的条目数量 */
+    @Param( { "1024", "1048576" } ) int size;
+    /** 键的访问顺序，{@code sequential} 为连续，{@code random} 为打乱 */
+    @Param( { "sequential", "random" } ) String order;
+
+    /** 测试的映射 */
+    IntLongMap prim;
+    /** 对比的映射 */
+    Map<Integer, Long> boxed;
+    /** 访问顺序 */
+    int[] keys;
+    /** 当前位置 */
+    int at = 0;
+
+    @Setup
+    public
+    void setup() {
+        keys = new int[size];
+        for ( int i = 0; i < size; i++ )
+            keys[i] = i;
+        if (order.equals("random")) {
+            var r = new Random(size);
+            for ( int i = size - 1; i > 0; i-- ){
+                var j = r.nextInt(i + 1);
+                var t = keys[i];
+                keys[i] = keys[j];
+                keys[j] = t;
+            }
+        }
+
+        if (impl.equals("HashMap")) {
+            boxed = new HashMap<>();
+            for ( int i = 0; i < size; i++ )
+                boxed.put(i << 1, (long) i << 20);
+        } else {
+            prim = new IntLongMap();
+            for ( int i = 0; i < size; i++ )
+                prim.put(i << 1, (long) i << 20);
+        }
+    }
+
+    /** 下一个不在映射中的键 */
+    int next() { return keys[at = (at + 1) % size] << 1 | 1; }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 放入、移除与读取 */
+    @Benchmark
+    public
+    long putRemove() {
+        var k = next();
+        if (prim != null) {
+            prim.put(k, (long) k << 20);
+            prim.remove(k, 0);
+            return prim.get(k ^ 1, 0);
+        }
+        boxed.put(k, (long) k << 20);
+        boxed.remove(k);
+        return boxed.getOrDefault(k ^ 1, 0L);
+    }
+}
@@ -0,0 +1,80 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>{@link TextIndex#search(String, int)} 基准测试.</h2>
+ * <p>
+ * 索引 {@link #docs} 个内容，标题 {@value #TITLE} 个词，描述 {@value #DES} 个词，
+ * 词从 {@value #VOCAB} 个词中按照偏斜的分布抽取，排名越靠前的词越常见<br/>
+ * 查询分为常见词、常见词与少见词组合、单个少见词三种，每次取前 {@value #LIMIT} 个结果
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 2, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Xmx3g" )
+public
+class TextIndexBench {
+    /** 词表大小 */
+    static final int VOCAB = 50000;
+    /** 标题的词数 */
+    static final int TITLE = 6;
+    /** 描述的词数 */
+    static final int DES = 20;
+    /** 返回的结果数量 */
+    static final int LIMIT = 20;
+
+    /** 内容数量 */
+    @Param( { "100000", "1000000" } ) int docs;
+    /** 查询 */
+    @Param( { "w1 w2", "w1 w5000", "w20000" } ) String query;
+
+    /** 测试的索引 */
+    TextIndex index;
+
+    @Setup( Level.Trial )
+    public
+    void setup() {
+        index = new TextIndex();
+        var r = new Random(docs);
+        for ( int i = 0; i < docs; i++ )
+            index.put(i, words(r, TITLE), words(r, DES));
+    }
+
+    /** 生成文本 */
+    static
+    String words(Random r, int n) {
+        var s = new StringBuilder();
+        for ( int i = 0; i < n; i++ ){
+            var d = r.nextDouble();
+            s.append(" w").append((int) (d * d * d * VOCAB));
+        }
+        return s.toString();
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 查询并排序 */
+    @Benchmark
+    public
+    List<TextIndex.Hit> search() { return index.search(query, LIMIT); }
+}
@@ -1,9 +1,12 @@
 package fybug.nulll.contenthub.datamanager;
+import fybug.nulll.contenthub.datamanager.index.ContentIndex;
 import lombok.Getter;
 
 public
 class DataHub {
     @Getter int id;
+    /** 内容索引 */
+    @Getter private final ContentIndex contentIndex = new ContentIndex();
 
     public
     DataHub(int id) {
@@ -1,13 +1,71 @@
 package fybug.nulll.contenthub.datamanager;
 import java.nio.file.Path;
+import java.time.Duration;
 
 public
 class DataManager {
     private static Path TempFile = Path.of("tmp/temp").toAbsolutePath();
+    private static Path ValuePath = Path.of("data/value").toAbsolutePath();
+    private static Path StoragePath = Path.of("data/storage").toAbsolutePath();
+    private static volatile Duration CommitDelay = Duration.ZERO;
+    private static volatile int IdReserve = 128;
 
     public static
     void setTempFile(Path path) { TempFile = path.toAbsolutePath(); }
 
     public static
     Path getTempFile() { return TempFile; }
+
+    /**
+     * 设置值类型数据的存储目录
+     * <p>
+     * 只影响之后打开的存储
+     *
+     * @param path 存储目录
+     */
+    public static
+    void setValuePath(Path path) { ValuePath = path.toAbsolutePath(); }
+
+    public static
+    Path getValuePath() { return ValuePath; }
+
+    /**
+     * 设置存储类型数据的根目录
+     * <p>
+     * 每个容器使用以其 id 命名的子目录，只影响之后打开的容器
+     *
+     * @param path 根目录
+     */
+    public static
+    void setStoragePath(Path path) { StoragePath = path.toAbsolutePath(); }
+
+    public static
+    Path getStoragePath() { return StoragePath; }
+
+    /**
+     * 设置组提交的最大等待时间
+     * <p>
+     * 同步前等待更多写入加入同一批次的时间，为 {@code 0} 时只合并同步期间到达的写入
+     *
+     * @param delay 等待时间
+     */
+    public static
+    void setCommitDelay(Duration delay)
+    { CommitDelay = delay == null || delay.isNegative() ? Duration.ZERO : delay; }
+
+    public static
+    Duration getCommitDelay() { return CommitDelay; }
+
+    /**
+     * 设置组内 id 的预留数量
+     * <p>
+     * 每次持久化 id 记录时预留的 id 数量，越大写入记录的次数越少，重启后跳过的 id 越多
+     *
+     * @param reserve 预留数量
+     */
+    public static
+    void setIdReserve(int reserve) { IdReserve = Math.max(1, reserve); }
+
+    public static
+    int getIdReserve() { return IdReserve; }
 }
@@ -0,0 +1,260 @@
+package fybug.nulll.contenthub.datamanager.content;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import lombok.Getter;
+
+/**
+ * <h2>查询结果游标.</h2>
+ * <p>
+ * 按照顺序逐个取得 {@link ContListR} ，只在读取时获取数据，不需要一次取得全部结果<br/>
+ * 达到数量上限、结果读完或调用 {@link #close()} 后结束，可以随时提前结束
+ * <p>
+ * 每读取一个结果会更新续取令牌，将 {@link #getToken()} 传给 {@link DataGet#queryCursor(int, String)} 即可从下一个结果继续<br/>
+ * 按照 id 排列的结果令牌为 id ，按照相关度排列的结果令牌为 {@code 相关度:id:查询版本}<br/>
+ * 按照 id 排列时只跳过 id 不大于令牌的结果，续取期间加入或删除的数据不会造成重复或遗漏已返回的结果；
+ * 相关度会随着匹配内容的修改而变化，所以按照相关度排列的令牌只在同一查询版本内有效<br/>
+ * 令牌的种类必须与查询的排列方式一致，否则视为格式错误
+ *
+ * @author fybug
+ * @version 0.0.3
+ * @see DataGet#queryCursor(int, String)
+ */
+public abstract
+class DataCursor implements Iterator<ContListR>, AutoCloseable {
+    /** 剩余可读取的数量 */
+    private int remain;
+    /** 预读的结果 */
+    private ContListR ahead;
+    /** 是否已结束 */
+    private boolean done = false;
+    /** 最后读取的结果的续取令牌 */
+    @Getter private String token;
+    /** 查询发生的错误，没有错误为 {@code null} */
+    @Getter private Map<String, Object> error;
+
+    /** @param limit 最多读取的数量，小于等于 {@code 0} 为不限制 */
+    protected
+    DataCursor(int limit) { remain = limit <= 0 ? Integer.MAX_VALUE : limit; }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 使用迭代器构造游标
+     *
+     * @param rows    结果迭代器
+     * @param limit   最多读取的数量，小于等于 {@code 0} 为不限制
+     * @param tokenOf 生成结果的续取令牌
+     *
+     * @return 游标
+     */
+    public static
+    DataCursor of(Iterator<ContListR> rows, int limit, Function<ContListR, String> tokenOf) {
+        return new DataCursor(limit) {
+            @Override
+            protected
+            ContListR fetch() { return rows.hasNext() ? rows.next() : null; }
+
+            @Override
+            protected
+            String tokenOf(ContListR row) { return tokenOf.apply(row); }
+        };
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 取得下一个结果
+     *
+     * @return 结果，没有更多结果时为 {@code null}
+     */
+    protected abstract
+    ContListR fetch();
+
+    /**
+     * 生成结果的续取令牌
+     *
+     * @param row 结果
+     *
+     * @return 令牌
+     */
+    protected abstract
+    String tokenOf(ContListR row);
+
+    /**
+     * 以错误结束
+     *
+     * @param error 发生错误时返回的映射，在 {@code error} 映射中写入状态码
+     */
+    protected
+    void fail(Map<String, Object> error) {
+        this.error = error;
+        done = true;
+    }
+
+    /** 关闭时的处理 */
+    protected
+    void onClose() {}
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    boolean hasNext() {
+        if (ahead != null)
+            return true;
+        if (done || remain <= 0)
+            return false;
+
+        ahead = fetch();
+        if (ahead == null)
+            done = true;
+        return ahead != null;
+    }
+
+    @Override
+    public
+    ContListR next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        var r = ahead;
+        ahead = null;
+        remain--;
+        token = tokenOf(r);
+        return r;
+    }
+
+    /**
+     * 转为流
+     * <p>
+     * 流关闭时会关闭游标
+     *
+     * @return 结果流
+     */
+    public
+    Stream<ContListR> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+                                    false).onClose(this::close);
+    }
+
+    /** 提前结束 */
+    @Override
+    public
+    void close() {
+        if (!done) {
+            done = true;
+            ahead = null;
+        }
+        onClose();
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 按照 id 排列的令牌
+     *
+     * @param id 数据 id
+     *
+     * @return 令牌
+     */
+    public static
+    String token(int id) { return String.valueOf(id); }
+
+    /**
+     * 按照相关度排列的令牌
+     *
+     * @param score   相关度
+     * @param id      数据 id
+     * @param version 计算相关度时的查询版本
+     *
+     * @return 令牌
+     */
+    public static
+    String token(double score, int id, long version) { return score + ":" + id + ":" + version; }
+
+    /**
+     * 是否为按照相关度排列的令牌
+     *
+     * @param token 令牌
+     *
+     * @return 按照相关度排列为 {@code true} ，按照 id 排列为 {@code false}
+     */
+    public static
+    boolean isRanked(String token) { return token.indexOf(':') >= 0; }
+
+    /**
+     * 解析令牌中的 id
+     *
+     * @param token 令牌
+     *
+     * @return 数据 id
+     *
+     * @throws IllegalArgumentException 令牌格式错误
+     */
+    public static
+    int tokenId(String token) {
+        try {
+            return Integer.parseInt(isRanked(token) ? ranked(token)[1] : token);
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException("bad cursor token: " + token, e);
+        }
+    }
+
+    /**
+     * 解析令牌中的相关度
+     *
+     * @param token 令牌
+     *
+     * @return 相关度，按照 id 排列的令牌为 {@link Double#NaN}
+     *
+     * @throws IllegalArgumentException 令牌格式错误
+     */
+    public static
+    double tokenScore(String token) {
+        if (!isRanked(token))
+            return Double.NaN;
+        try {
+            var s = Double.parseDouble(ranked(token)[0]);
+            if (Double.isNaN(s))
+                throw new NumberFormatException("NaN");
+            return s;
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException("bad cursor token: " + token, e);
+        }
+    }
+
+    /**
+     * 解析令牌中的查询版本
+     *
+     * @param token 令牌
+     *
+     * @return 查询版本，按照 id 排列的令牌为 {@code -1}
+     *
+     * @throws IllegalArgumentException 令牌格式错误
+     */
+    public static
+    long tokenVersion(String token) {
+        if (!isRanked(token))
+            return -1;
+        try {
+            return Long.parseLong(ranked(token)[2]);
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException("bad cursor token: " + token, e);
+        }
+    }
+
+    /** 拆分按照相关度排列的令牌 */
+    private static
+    String[] ranked(String token) {
+        var r = token.split(":", -1);
+        if (r.length != 3)
+            throw new IllegalArgumentException("bad cursor token: " + token);
+        return r;
+    }
+}
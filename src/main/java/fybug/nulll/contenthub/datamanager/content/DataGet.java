@@ -1,4 +1,5 @@
 package fybug.nulll.contenthub.datamanager.content;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,13 +21,14 @@ import fybug.nulll.contenthub.datamanager.state;
  *     <li>{@link #inDate(String, String)} 数据的时间区间</li>
  * </ul>
  * 赋予查找条件，通过 {@link #queryDatalist()} 触发条件，查找对应数据的属性列表。<br/>
+ * 结果较多时可使用 {@link #queryCursor(int, String)} 分批逐个读取。<br/>
  * 如果只需要通过 id 查找单个数据
  * <ul>
  *     <li></li>
  * </ul>
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.3
  * @see state
  */
 public abstract
@@ -88,6 +90,35 @@ class DataGet extends HubControl {
     public abstract
     Map<String, Object> queryDatalist();
 
+    /**
+     * 根据当前条件搜索数据，逐个返回结果
+     * <p>
+     * 默认实现会通过 {@link #queryDatalist()} 取得全部结果后逐个返回，续取时跳过 id 不大于令牌的结果，
+     * 需要按照 id 排列结果或重写该方法，只接受按照 id 排列的令牌
+     *
+     * @param limit 最多返回的数量，小于等于 {@code 0} 为不限制
+     * @param token 续取令牌，为 {@code null} 时从头开始
+     *
+     * @return 结果游标，查询失败时 {@link DataCursor#getError()} 为错误映射
+     *
+     * @throws IllegalArgumentException 令牌格式错误或不是按照 id 排列的令牌
+     */
+    public
+    DataCursor queryCursor(int limit, String token) {
+        if (token != null && DataCursor.isRanked(token))
+            throw new IllegalArgumentException("cursor token is not ordered by id: " + token);
+        var r = queryDatalist();
+        var data = r.get("data");
+        var rows = data instanceof ContListR[] ? (ContListR[]) data : new ContListR[0];
+        var after = token == null ? 0 : DataCursor.tokenId(token);
+
+        var cursor = DataCursor.of(Arrays.stream(rows).filter(c -> token == null || c.getId() > after).iterator(),
+                                   limit, c -> DataCursor.token(c.getId()));
+        if (r.containsKey("error"))
+            cursor.fail(r);
+        return cursor;
+    }
+
     /*--------------------------------------------------------------------------------------------*/
 
     /**
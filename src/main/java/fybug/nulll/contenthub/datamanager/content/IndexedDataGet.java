@@ -0,0 +1,434 @@
+package fybug.nulll.contenthub.datamanager.content;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+import fybug.nulll.contenthub.datamanager.state;
+import fybug.nulll.contenthub.datamanager.index.ContentIndex;
+import fybug.nulll.contenthub.datamanager.index.DateIndex;
+import fybug.nulll.contenthub.datamanager.index.IntBitmap;
+import fybug.nulll.contenthub.datamanager.index.LinkTypeIndex;
+import fybug.nulll.contenthub.datamanager.index.QueryPlan;
+import fybug.nulll.contenthub.datamanager.index.TagIndex;
+import fybug.nulll.contenthub.datamanager.index.TextIndex;
+
+/**
+ * <h2>使用索引的内容数据获取接口.</h2>
+ * <p>
+ * 包装实际的 {@link DataGet} ，标签条件由 {@link TagIndex} 计算，文本条件由 {@link TextIndex} 计算并按照相关度排列，
+ * 不再交给实际的获取接口<br/>
+ * 除了 {@link #hasTags(int[])} 之外还可使用 {@link #anyTags(int[])} 与 {@link #noneTags(int[])} 组合标签条件<br/>
+ * 日期条件由 {@link DateIndex} 计算，无法解析的日期仍交给实际的获取接口，处理类型条件由 {@link LinkTypeIndex} 计算
+ * <p>
+ * 条件会组成 {@link QueryPlan} ，按照索引估计的结果数量从小到大执行，其他条件由实际的获取接口在最后执行并过滤<br/>
+ * 交给实际接口的条件只在执行查询时才传入，查询无法执行时不会残留在实际接口中<br/>
+ * 只有索引条件时逐个通过 {@link DataGet#queryData(int)} 获取属性，{@link #queryCursor(int, String)} 会在读取时才获取，
+ * 条件在查询后清空，可通过 {@link #explain()} 查看最近一次查询的计划
+ * <p>
+ * 索引不完整时（见 {@link ContentIndex#isReady()}）不使用索引，实际接口支持的条件全部交给实际接口处理，
+ * 只有索引才能处理的 {@link #anyTags(int[])} 与 {@link #noneTags(int[])} 会返回 {@link state#CAN_T_RUN} 错误
+ *
+ * @author fybug
+ * @version 0.0.11
+ * @see ContentIndex
+ * @see IndexedDataSet
+ */
+public
+class IndexedDataGet extends DataGet {
+    /** 不限制数量时每次计算相关度保留的结果数量 */
+    private static final int BATCH = 256;
+
+    /** 实际的获取接口 */
+    protected final DataGet dataGet;
+    /** 内容索引 */
+    protected final ContentIndex index;
+
+    /** 全文查询 */
+    private String text;
+    /** 必须拥有的标签 */
+    private int[] allTags;
+    /** 至少拥有其中一个的标签 */
+    private int[] anyTags;
+    /** 不能拥有的标签 */
+    private int[] noneTags;
+    /** 属于其中一个的处理类型 */
+    private int[] linkTypes;
+    /** 日期范围的起始时间 */
+    private long dateFrom;
+    /** 日期范围的结束时间 */
+    private long dateTo;
+    /** 日期范围的起始日期 */
+    private String dateAfter;
+    /** 日期范围的结束日期 */
+    private String dateBefo;
+    /** 是否有日期条件 */
+    private boolean hasDate = false;
+    /** 日期条件是否无法解析，需要交给实际接口 */
+    private boolean rawDate = false;
+    /** 最近一次查询的计划 */
+    private QueryPlan lastPlan;
+
+    /**
+     * 构造获取接口
+     *
+     * @param dataHub 持有该控件的 DataHub 对象
+     * @param dataGet 实际的获取接口
+     */
+    public
+    IndexedDataGet(DataHub dataHub, DataGet dataGet) {
+        super(dataHub);
+        this.dataGet = dataGet;
+        index = dataHub.getContentIndex();
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    DataGet queryText(String query) {
+        text = query;
+        return this;
+    }
+
+    @Override
+    public
+    DataGet hasTags(int[] tags) {
+        allTags = tags;
+        return this;
+    }
+
+    /**
+     * 指定数据至少拥有其中一个的标签
+     *
+     * @param tags 标签的 id
+     *
+     * @return this
+     */
+    public
+    DataGet anyTags(int[] tags) {
+        anyTags = tags;
+        return this;
+    }
+
+    /**
+     * 指定数据不能拥有的标签
+     *
+     * @param tags 标签的 id
+     *
+     * @return this
+     */
+    public
+    DataGet noneTags(int[] tags) {
+        noneTags = tags;
+        return this;
+    }
+
+    @Override
+    public
+    DataGet isLinktype(int[] linktypes) {
+        linkTypes = linktypes;
+        return this;
+    }
+
+    @Override
+    public
+    DataGet inDate(String after, String befo) {
+        var from = DateIndex.parse(after);
+        var to = DateIndex.parseEnd(befo);
+        dateAfter = after;
+        dateBefo = befo;
+        // 无法解析的日期在查询时交给实际接口
+        rawDate = (from == DateIndex.NONE && !isBlank(after)) || (to == DateIndex.NONE && !isBlank(befo));
+        hasDate = !rawDate;
+        if (hasDate) {
+            dateFrom = from;
+            dateTo = to == DateIndex.NONE ? Long.MAX_VALUE : to;
+        }
+        return this;
+    }
+
+    /*--------------------------------------*/
+
+    @Override
+    public
+    Map<String, Object> queryDatalist() {
+        var cursor = prepare(0, null);
+        // 没有索引条件
+        if (cursor == null)
+            return dataGet.queryDatalist();
+
+        var list = new ArrayList<ContListR>();
+        cursor.forEachRemaining(list::add);
+        if (cursor.getError() != null)
+            return cursor.getError();
+
+        var r = new HashMap<String, Object>();
+        r.put("data", list.toArray(new ContListR[0]));
+        return r;
+    }
+
+    /**
+     * 根据当前条件搜索数据，逐个返回结果
+     * <p>
+     * 只在读取时通过 {@link DataGet#queryData(int)} 获取数据属性，内存中只保存结果的 id<br/>
+     * 有全文条件时续取令牌为 {@code 相关度:id:查询版本} ，否则为 id
+     * <p>
+     * 按照相关度排列时每次只计算最终结果的相关度并保留一页，续取从令牌的相关度与 id 之后开始，不需要取得之前的结果<br/>
+     * 分页固定在第一页的查询版本上（见 {@link TextIndex#version(String)}），修改涉及包含查询词的内容时续取会拒绝该令牌，
+     * 需要从头重新查询；其他内容的修改不影响续取
+     *
+     * @param limit 最多返回的数量，小于等于 {@code 0} 为不限制
+     * @param token 续取令牌，为 {@code null} 时从头开始
+     *
+     * @return 结果游标
+     *
+     * @throws IllegalArgumentException 令牌格式错误、与查询的排列方式不一致或查询的内容已修改
+     */
+    @Override
+    public
+    DataCursor queryCursor(int limit, String token) {
+        var cursor = prepare(limit, token);
+        return cursor == null ? super.queryCursor(limit, token) : cursor;
+    }
+
+    /**
+     * 输出最近一次查询的计划
+     *
+     * @return 计划的各阶段与耗时，最近一次查询没有使用索引时为 {@code null}
+     *
+     * @see QueryPlan#explain()
+     */
+    public
+    String explain() { return lastPlan == null ? null : lastPlan.explain(); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    Map<String, Object> queryData(int id) { return dataGet.queryData(id); }
+
+    @Override
+    public
+    Map<String, Object> getOfid(int id) { return dataGet.getOfid(id); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 执行查询计划并生成游标
+     *
+     * @param limit 最多返回的数量
+     * @param token 续取令牌
+     *
+     * @return 结果游标，没有索引条件时为 {@code null}
+     */
+    private
+    DataCursor prepare(int limit, String token) {
+        var ready = index.isReady();
+        // 索引不完整时不能只使用索引回答
+        if (!ready && indexOnly()) {
+            clear();
+            lastPlan = null;
+            var cursor = DataCursor.of(Collections.emptyIterator(), limit, c -> DataCursor.token(c.getId()));
+            var error = new HashMap<String, Object>();
+            error.put("error", state.CAN_T_RUN);
+            cursor.fail(error);
+            return cursor;
+        }
+
+        var other = delegate(!ready);
+        var plan = plan();
+
+        if (plan.isEmpty()) {
+            lastPlan = null;
+            // 条件已交给实际接口处理
+            return null;
+        }
+
+        /* 实际接口的条件作为最后的阶段 */
+        var rows = new HashMap<Integer, ContListR>();
+        var error = new HashMap<String, Object>();
+        if (other) {
+            plan.stage("delegate", QueryPlan.UNKNOWN, in -> {
+                var r = dataGet.queryDatalist();
+                var out = new IntBitmap();
+                if (r.containsKey("error")) {
+                    error.putAll(r);
+                    return out;
+                }
+                var data = r.get("data");
+                if (data instanceof ContListR[]) {
+                    for ( ContListR c : (ContListR[]) data ){
+                        if (in == null || in.contains(c.getId())) {
+                            rows.put(c.getId(), c);
+                            out.add(c.getId());
+                        }
+                    }
+                }
+                return out;
+            });
+        }
+        lastPlan = plan;
+
+        /* 结果顺序，按照相关度排列时从令牌的位置分批取得 */
+        int[] order = null;
+        List<TextIndex.Hit> hits = null;
+        var version = plan.textVersion();
+        var size = limit > 0 ? limit : BATCH;
+        if (plan.isRanked()) {
+            TextIndex.Hit after = null;
+            if (token != null) {
+                if (!DataCursor.isRanked(token))
+                    throw new IllegalArgumentException("cursor token is not ordered by relevance: " + token);
+                if (DataCursor.tokenVersion(token) != version)
+                    throw new IllegalArgumentException("cursor token is stale, text index has changed: " + token);
+                after = new TextIndex.Hit(DataCursor.tokenId(token), DataCursor.tokenScore(token));
+            }
+            hits = plan.hits(size, after);
+        } else {
+            order = plan.order();
+            if (token != null) {
+                if (DataCursor.isRanked(token))
+                    throw new IllegalArgumentException("cursor token is not ordered by id: " + token);
+                var i = Arrays.binarySearch(order, DataCursor.tokenId(token));
+                order = Arrays.copyOfRange(order, i < 0 ? -i - 1 : i + 1, order.length);
+            }
+        }
+
+        var ids = order;
+        var first = hits;
+        var cursor = new DataCursor(limit) {
+            /** 当前一批按照相关度排列的结果，按照 id 排列时为 {@code null} */
+            private List<TextIndex.Hit> batch = first;
+            /** 下一个结果的下标 */
+            private int i = 0;
+
+            @Override
+            protected
+            ContListR fetch() {
+                while( true ){
+                    int id;
+                    if (batch == null) {
+                        if (i >= ids.length)
+                            return null;
+                        id = ids[i++];
+                    } else {
+                        if (i >= batch.size()) {
+                            // 上一批不足时已经没有更多结果
+                            if (batch.size() < size)
+                                return null;
+                            batch = plan.hits(size, batch.get(batch.size() - 1));
+                            i = 0;
+                            continue;
+                        }
+                        id = batch.get(i++).getId();
+                    }
+
+                    if (other) {
+                        var c = rows.get(id);
+                        if (c != null)
+                            return c;
+                        continue;
+                    }
+
+                    var r = dataGet.queryData(id);
+                    if (r.containsKey("error")) {
+                        fail(r);
+                        return null;
+                    }
+                    var data = r.get("data");
+                    if (data instanceof ContListR)
+                        return (ContListR) data;
+                }
+            }
+
+            @Override
+            protected
+            String tokenOf(ContListR row) {
+                if (batch == null)
+                    return DataCursor.token(row.getId());
+                // 令牌总是在读取后立即生成，对应当前一批中最后读取的结果
+                return DataCursor.token(batch.get(i - 1).getScore(), row.getId(), version);
+            }
+        };
+        if (!error.isEmpty())
+            cursor.fail(error);
+        return cursor;
+    }
+
+    /**
+     * 根据当前的索引条件生成查询计划并清空条件
+     *
+     * @return 查询计划，没有索引条件时为空计划
+     */
+    protected
+    QueryPlan plan() {
+        var plan = new QueryPlan();
+        if (text != null && !text.isBlank())
+            plan.text(index.getText(), text);
+        plan.tags(index.getTags(), allTags, anyTags, noneTags);
+        plan.linkType(index.getLinkType(), linkTypes);
+        if (hasDate)
+            plan.date(index.getDate(), dateFrom, dateTo);
+
+        clear();
+        return plan;
+    }
+
+    /** 是否有只能由索引处理的条件 */
+    private
+    boolean indexOnly() { return (anyTags != null && anyTags.length > 0) || (noneTags != null && noneTags.length > 0); }
+
+    /**
+     * 将实际接口处理的条件交给实际的获取接口
+     * <p>
+     * 无法解析的日期总是交给实际接口，交出的条件会从当前条件中清除
+     *
+     * @param all 是否交出所有实际接口支持的条件，索引不完整时使用
+     *
+     * @return 是否有交出的条件
+     */
+    private
+    boolean delegate(boolean all) {
+        var r = false;
+        if (rawDate || (all && hasDate)) {
+            dataGet.inDate(dateAfter, dateBefo);
+            rawDate = hasDate = false;
+            r = true;
+        }
+        if (!all)
+            return r;
+
+        if (text != null && !text.isBlank()) {
+            dataGet.queryText(text);
+            r = true;
+        }
+        if (allTags != null && allTags.length > 0) {
+            dataGet.hasTags(allTags);
+            r = true;
+        }
+        if (linkTypes != null && linkTypes.length > 0) {
+            dataGet.isLinktype(linkTypes);
+            r = true;
+        }
+        text = null;
+        allTags = linkTypes = null;
+        return r;
+    }
+
+    /** 清空当前条件 */
+    private
+    void clear() {
+        text = null;
+        allTags = anyTags = noneTags = linkTypes = null;
+        dateAfter = dateBefo = null;
+        hasDate = rawDate = false;
+    }
+
+    /** 字符串是否为空 */
+    private static
+    boolean isBlank(String s) { return s == null || s.isBlank(); }
+}
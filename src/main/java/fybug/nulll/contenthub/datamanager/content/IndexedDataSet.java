@@ -0,0 +1,76 @@
+package fybug.nulll.contenthub.datamanager.content;
+import fybug.nulll.contenthub.datamanager.DataHub;
+import fybug.nulll.contenthub.datamanager.index.ContentIndex;
+
+/**
+ * <h2>同步索引的内容修改接口.</h2>
+ * <p>
+ * 包装实际的 {@link DataSet} ，操作成功后将修改同步到 {@link DataHub#getContentIndex()} 中<br/>
+ * 返回负数的状态码视为失败，不会修改索引<br/>
+ * 修改未索引的内容且无法得到完整的文本时，会将索引标记为不完整，等待重建
+ *
+ * @author fybug
+ * @version 0.0.5
+ * @see ContentIndex
+ * @see IndexedDataGet
+ */
+public
+class IndexedDataSet extends DataSet {
+    /** 实际的修改接口 */
+    private final DataSet dataSet;
+    /** 内容索引 */
+    private final ContentIndex index;
+
+    /**
+     * 构造修改接口
+     *
+     * @param dataHub 持有该控件的 DataHub 对象
+     * @param dataSet 实际的修改接口
+     */
+    public
+    IndexedDataSet(DataHub dataHub, DataSet dataSet) {
+        super(dataHub);
+        this.dataSet = dataSet;
+        index = dataHub.getContentIndex();
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    int add(ContPutR dataR) {
+        var id = dataSet.add(dataR);
+        if (id >= 0)
+            index.put(id, dataR.getTags(), dataR.getTitle(), dataR.getDes(), dataR.getDate(), dataR.getLinkType());
+        return id;
+    }
+
+    @Override
+    public
+    int remove(int id) {
+        var r = dataSet.remove(id);
+        if (r >= 0)
+            index.remove(id);
+        return r;
+    }
+
+    @Override
+    public
+    int alter(ContPutR dataR) {
+        var r = dataSet.alter(dataR);
+        // 未修改的记录为 null ，类型 id 从 1 开始，0 为未修改
+        if (r >= 0)
+            index.alter(dataR.getId(), dataR.getTags(), dataR.getTitle(), dataR.getDes(), dataR.getDate(),
+                        dataR.getLinkType());
+        return r;
+    }
+
+    @Override
+    public
+    int deleteTagOfCont(int[] tags) {
+        var r = dataSet.deleteTagOfCont(tags);
+        if (r >= 0)
+            index.removeTags(tags);
+        return r;
+    }
+}
@@ -0,0 +1,298 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import fybug.nulll.pdconcurrent.fun.trySupplier;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * <h2>异步数据读取.</h2>
+ * <p>
+ * 使用 {@link AsynchronousFileChannel} 分块读取数据，读取期间持有的锁在传输结束、失败或取消后才会释放<br/>
+ * 可以将数据块交给回调处理，也可以作为 {@link Flow.Publisher} 按照订阅者的需求发布
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see FileManager#readDataAsync(int, Consumer)
+ * @see Group#readDataAsync(int, Consumer)
+ */
+final
+class AsyncRead {
+    /** 数据块大小 */
+    static final int CHUNK = 64 * 1024;
+
+    private
+    AsyncRead() {}
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 读取数据到回调
+     * <p>
+     * 回调中的缓冲区会在回调返回后复用，需要保留数据时要自行复制
+     *
+     * @param acquire 获取锁的操作
+     * @param path    获取数据路径的操作，在获取锁后执行
+     * @param release 释放锁的操作
+     * @param chunk   数据块回调
+     *
+     * @return 读取的总字节数
+     */
+    static
+    CompletableFuture<Long> read(Runnable acquire, trySupplier<Path, Exception> path, Runnable release,
+                                 Consumer<ByteBuffer> chunk)
+    {
+        var future = new CompletableFuture<Long>();
+        var done = once(release);
+
+        AsynchronousFileChannel ch;
+        try {
+            ch = open(acquire, path, done);
+        } catch ( Exception e ) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        var buff = ByteBuffer.allocateDirect(CHUNK);
+        ch.read(buff, 0, 0L, new CompletionHandler<>() {
+            @Override
+            public
+            void completed(Integer n, Long position) {
+                // 读取完成
+                if (n == -1) {
+                    close(ch, done);
+                    future.complete(position);
+                    return;
+                }
+
+                buff.flip();
+                try {
+                    chunk.accept(buff);
+                } catch ( RuntimeException e ) {
+                    failed(e, position);
+                    return;
+                }
+                buff.clear();
+                ch.read(buff, position + n, position + n, this);
+            }
+
+            @Override
+            public
+            void failed(Throwable e, Long position) {
+                close(ch, done);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 获取数据发布者
+     * <p>
+     * 只接受一个订阅者，订阅时获取锁并打开数据，每个数据块使用新的缓冲区
+     *
+     * @param acquire 获取锁的操作
+     * @param path    获取数据路径的操作，在获取锁后执行
+     * @param release 释放锁的操作
+     *
+     * @return 数据发布者
+     */
+    static
+    Flow.Publisher<ByteBuffer> publisher(Runnable acquire, trySupplier<Path, Exception> path, Runnable release) {
+        var subscribed = new AtomicBoolean();
+
+        return subscriber -> {
+            // 只接受一次订阅
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Subscription(subscriber, null, () -> {}));
+                subscriber.onError(new IllegalStateException("publisher can only be subscribed once"));
+                return;
+            }
+
+            var done = once(release);
+            AsynchronousFileChannel ch;
+            try {
+                ch = open(acquire, path, done);
+            } catch ( Exception e ) {
+                subscriber.onSubscribe(new Subscription(subscriber, null, () -> {}));
+                subscriber.onError(e);
+                return;
+            }
+            subscriber.onSubscribe(new Subscription(subscriber, ch, done));
+        };
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>数据订阅.</h2>
+     * <p>
+     * 同一时间只有一个读取在进行，数据块按照顺序发布
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class Subscription implements Flow.Subscription, CompletionHandler<Integer, ByteBuffer> {
+        /** 订阅者 */
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        /** 数据通道 */
+        private final AsynchronousFileChannel ch;
+        /** 释放锁的操作 */
+        private final Runnable release;
+        /** 未满足的需求 */
+        private final AtomicLong demand = new AtomicLong();
+        /** 是否有进行中的读取 */
+        private final AtomicBoolean reading = new AtomicBoolean();
+        /** 是否已结束 */
+        private volatile boolean done;
+        /** 下一次读取的位置，只在读取中修改 */
+        private long position = 0;
+
+        Subscription(Flow.Subscriber<? super ByteBuffer> subscriber, AsynchronousFileChannel ch,
+                     Runnable release)
+        {
+            this.subscriber = subscriber;
+            this.ch = ch;
+            this.release = release;
+            done = ch == null;
+        }
+
+        @Override
+        public
+        void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("request must be positive"));
+                return;
+            }
+            demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            drain();
+        }
+
+        @Override
+        public
+        void cancel() { finish(); }
+
+        @Override
+        public
+        void completed(Integer n, ByteBuffer buff) {
+            if (done)
+                return;
+            // 读取完成
+            if (n == -1) {
+                finish();
+                subscriber.onComplete();
+                return;
+            }
+
+            position += n;
+            demand.decrementAndGet();
+            subscriber.onNext(buff.flip());
+            reading.set(false);
+            drain();
+        }
+
+        @Override
+        public
+        void failed(Throwable e, ByteBuffer buff) { fail(e); }
+
+        /** 在有需求时开始下一次读取 */
+        private
+        void drain() {
+            if (!done && demand.get() > 0 && reading.compareAndSet(false, true)) {
+                var buff = ByteBuffer.allocate(CHUNK);
+                ch.read(buff, position, buff, this);
+            }
+        }
+
+        /**
+         * 以错误结束
+         *
+         * @param e 错误
+         */
+        private
+        void fail(Throwable e) {
+            if (done)
+                return;
+            finish();
+            subscriber.onError(e);
+        }
+
+        /** 关闭通道并释放锁 */
+        private
+        void finish() {
+            if (done)
+                return;
+            done = true;
+            close(ch, release);
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取锁并打开数据通道
+     *
+     * @param acquire 获取锁的操作
+     * @param path    获取数据路径的操作
+     * @param release 释放锁的操作，打开失败时执行
+     *
+     * @return 数据通道
+     *
+     * @throws Exception 获取路径或打开文件失败
+     */
+    private static
+    AsynchronousFileChannel open(Runnable acquire, trySupplier<Path, Exception> path, Runnable release)
+    throws Exception
+    {
+        acquire.run();
+        try {
+            return AsynchronousFileChannel.open(path.get(), READ);
+        } catch ( Exception e ) {
+            release.run();
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭通道并释放锁
+     *
+     * @param ch      数据通道
+     * @param release 释放锁的操作
+     */
+    private static
+    void close(AsynchronousFileChannel ch, Runnable release) {
+        try {
+            ch.close();
+        } catch ( IOException e ) {
+            e.printStackTrace();
+        } finally {
+            release.run();
+        }
+    }
+
+    /**
+     * 包装为只执行一次的操作
+     *
+     * @param run 操作
+     *
+     * @return 只执行一次的操作
+     */
+    private static
+    Runnable once(Runnable run) {
+        var ran = new AtomicBoolean();
+        return () -> {
+            if (ran.compareAndSet(false, true))
+                run.run();
+        };
+    }
+}
@@ -0,0 +1,195 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
+
+/**
+ * <h2>缓冲区缓存.</h2>
+ * <p>
+ * 与 {@link GroupCache} 相同使用 {@link ConcurrentHashMap} 保存条目，命中时不加锁，只更新条目的访问时间，
+ * 同一条目一毫秒内的重复访问不再更新，减少并发命中时对同一位置的写入<br/>
+ * 按照缓冲区的字节数限制容量，超出时由一个线程按照访问时间一次淘汰最久未使用的条目，直到降到容量的八分之七，
+ * 淘汰期间其他线程的放入不会等待，占用可能短暂超出容量
+ * <p>
+ * 命中与未命中记录为 {@code cache.{名称}.hit} 与 {@code cache.{名称}.miss}
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see ContentCache
+ * @see MappedDataCache
+ */
+final
+class BufferCache {
+    /** 访问时间的更新间隔 */
+    private static final long TOUCH_NANOS = 1_000_000;
+
+    /** 缓存 */
+    private final Map<Long, Entry> map = new ConcurrentHashMap<>();
+    /** 命中的指标名称 */
+    private final String hitName;
+    /** 未命中的指标名称 */
+    private final String missName;
+    /** 是否正在淘汰 */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    /** 缓存容量 */
+    private volatile long capacity = 0;
+    /** 当前占用的字节数 */
+    private final AtomicLong bytes = new AtomicLong();
+
+    /** 命中次数 */
+    private final LongAdder hits = new LongAdder();
+    /** 未命中次数 */
+    private final LongAdder misses = new LongAdder();
+    /** 淘汰次数 */
+    private final LongAdder evictions = new LongAdder();
+    /** 命中时提供的字节数 */
+    private final LongAdder served = new LongAdder();
+
+    /** @param name 指标中使用的名称 */
+    BufferCache(String name) {
+        hitName = "cache." + name + ".hit";
+        missName = "cache." + name + ".miss";
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>缓存条目.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class Entry {
+        /** 数据 */
+        final ByteBuffer buff;
+        /** 最后访问时间 */
+        volatile long access = System.nanoTime();
+
+        Entry(ByteBuffer buff) { this.buff = buff; }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取缓存的数据
+     * <p>
+     * 不加锁，会记录命中与未命中
+     *
+     * @param key 缓存键
+     *
+     * @return 缓存中的缓冲区，未命中为 {@code null}
+     */
+    ByteBuffer get(long key) {
+        var e = map.get(key);
+        if (e == null) {
+            misses.increment();
+            Instrument.count(missName, 1);
+            return null;
+        }
+
+        var now = System.nanoTime();
+        if (now - e.access > TOUCH_NANOS)
+            e.access = now;
+        hits.increment();
+        Instrument.count(hitName, 1);
+        served.add(e.buff.capacity());
+        return e.buff;
+    }
+
+    /**
+     * 放入数据
+     * <p>
+     * 超出容量的数据不放入
+     *
+     * @param key  缓存键
+     * @param buff 数据
+     */
+    void put(long key, ByteBuffer buff) {
+        if (buff.capacity() > capacity)
+            return;
+        var old = map.put(key, new Entry(buff));
+        bytes.addAndGet(buff.capacity() - (old == null ? 0 : old.buff.capacity()));
+        if (bytes.get() > capacity)
+            evict();
+    }
+
+    /**
+     * 移除数据
+     *
+     * @param key 缓存键
+     */
+    void remove(long key) {
+        var old = map.remove(key);
+        if (old != null)
+            bytes.addAndGet(-old.buff.capacity());
+    }
+
+    /**
+     * 移除符合条件的数据
+     *
+     * @param filter 缓存键的条件
+     */
+    void removeIf(LongPredicate filter) {
+        for ( Long key : map.keySet() ){
+            if (filter.test(key))
+                remove(key);
+        }
+    }
+
+    /**
+     * 设置缓存容量
+     *
+     * @param capacity 缓存容量，为 {@code 0} 时清空缓存
+     */
+    void setCapacity(long capacity) {
+        this.capacity = Math.max(0, capacity);
+        if (this.capacity == 0)
+            removeIf(k -> true);
+        else if (bytes.get() > this.capacity)
+            evict();
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @return 统计数据
+     */
+    CacheStats stats()
+    { return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), map.size(), bytes.get(), served.sum()); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 淘汰最久未使用的数据直到降到容量的八分之七，同时只有一个线程淘汰 */
+    private
+    void evict() {
+        if (!evicting.compareAndSet(false, true))
+            return;
+        try {
+            var cap = capacity;
+            var target = cap - (cap >> 3);
+            if (bytes.get() <= cap)
+                return;
+
+            var list = new ArrayList<Map.Entry<Long, Entry>>(map.entrySet());
+            list.sort(Comparator.comparingLong(e -> e.getValue().access));
+            for ( int i = 0; i < list.size() && bytes.get() > target; i++ ){
+                var e = list.get(i);
+                if (map.remove(e.getKey(), e.getValue())) {
+                    bytes.addAndGet(-e.getValue().buff.capacity());
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
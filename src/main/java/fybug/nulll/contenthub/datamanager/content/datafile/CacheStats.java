@@ -0,0 +1,38 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * <h2>缓存统计数据.</h2>
+ *
+ * @author fybug
+ * @version 0.0.2
+ */
+@AllArgsConstructor
+@Data
+public final
+class CacheStats {
+    /** 命中次数 */
+    private long hits;
+    /** 未命中次数 */
+    private long misses;
+    /** 淘汰次数 */
+    private long evictions;
+    /** 当前缓存的数量 */
+    private long size;
+    /** 当前缓存占用的字节数，不按照大小统计的缓存为 {@code 0} */
+    private long bytes;
+    /** 命中时提供的字节数，不按照大小统计的缓存为 {@code 0} */
+    private long served;
+
+    /**
+     * 命中率
+     *
+     * @return 命中次数占总访问次数的比例，没有访问时为 {@code 0}
+     */
+    public
+    double hitRatio() {
+        var total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
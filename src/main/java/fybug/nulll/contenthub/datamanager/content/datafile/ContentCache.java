@@ -0,0 +1,174 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * <h2>数据内容缓存.</h2>
+ * <p>
+ * 读取时将不超过单项上限的数据完整读入堆外的直接缓冲区，之后的读取直接从缓冲区返回数据流<br/>
+ * 按照占用的字节数限制容量，超出时淘汰最久未使用的数据，缓冲区在淘汰后由 GC 释放，不占用堆内存<br/>
+ * 条目保存在 {@link BufferCache} 中，命中时不加锁
+ * <p>
+ * 条目使用 {@link #key(int, int)} 生成的键，数据管理器中的数据为 {@code key(id, -1)} ，组内的数据为 {@code key(组 id, 组内 id)}<br/>
+ * 读取与失效都需要在持有对应数据的锁时调用，填充在读锁中进行，失效在写锁中进行，所以不会缓存到被替换的数据
+ *
+ * @author fybug
+ * @version 0.0.3
+ * @see FileManager#setContentCache(int, long)
+ */
+final
+class ContentCache {
+    /** 缓存 */
+    private final BufferCache cache = new BufferCache("content");
+    /** 单项数据的大小上限，{@code 0} 为关闭 */
+    private volatile int maxItem = 0;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 生成缓存键
+     *
+     * @param id     数据 id 或组 id
+     * @param member 组内 id ，数据管理器中的数据为 {@code -1}
+     *
+     * @return 缓存键
+     */
+    static
+    long key(int id, int member) { return ((long) id << 32) | (member & 0xFFFFFFFFL); }
+
+    /**
+     * 设置缓存容量
+     *
+     * @param maxItem  单项数据的大小上限，小于等于 {@code 0} 为关闭并清空缓存
+     * @param capacity 缓存容量
+     */
+    synchronized
+    void configure(int maxItem, long capacity) {
+        this.maxItem = Math.max(0, maxItem);
+        cache.setCapacity(this.maxItem == 0 ? 0 : capacity);
+    }
+
+    /**
+     * 打开数据
+     * <p>
+     * 命中时从缓存中读取，否则从文件中读取，大小不超过上限的数据会放入缓存
+     *
+     * @param key 缓存键
+     * @param pa  数据路径
+     *
+     * @return 读取用的数据流
+     *
+     * @throws IOException 无法打开文件
+     */
+    InputStream open(long key, Path pa) throws IOException {
+        var max = maxItem;
+        if (max == 0)
+            return Files.newInputStream(pa);
+
+        var hit = cache.get(key);
+        if (hit != null)
+            return new BufferInputStream(hit.duplicate());
+
+        var ch = FileChannel.open(pa, READ);
+        try {
+            var size = ch.size();
+            // 超出上限直接读取文件
+            if (size > max)
+                return Channels.newInputStream(ch);
+
+            /* 读入缓冲区 */
+            var buff = ByteBuffer.allocateDirect((int) size);
+            while( buff.hasRemaining() && ch.read(buff) != -1 ) ;
+            ch.close();
+            buff.flip();
+
+            cache.put(key, buff.asReadOnlyBuffer());
+            return new BufferInputStream(buff);
+        } catch ( IOException | RuntimeException e ) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /** 是否开启 */
+    boolean enabled() { return maxItem != 0; }
+
+    /**
+     * 使数据失效
+     *
+     * @param key 缓存键
+     */
+    void invalidate(long key) {
+        if (maxItem != 0)
+            cache.remove(key);
+    }
+
+    /**
+     * 使组内的数据全部失效
+     *
+     * @param id 组 id
+     */
+    void invalidateGroup(int id) {
+        if (maxItem != 0)
+            cache.removeIf(k -> (int) (k >>> 32) == id && (int) k != -1);
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @return 统计数据
+     */
+    CacheStats stats() { return cache.stats(); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>缓冲区数据流.</h2>
+     * <p>
+     * 读取缓冲区的独立视图，不影响缓存中的缓冲区
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class BufferInputStream extends InputStream {
+        /** 数据 */
+        private final ByteBuffer buff;
+
+        BufferInputStream(ByteBuffer buff) { this.buff = buff; }
+
+        @Override
+        public
+        int read() { return buff.hasRemaining() ? buff.get() & 0xff : -1; }
+
+        @Override
+        public
+        int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!buff.hasRemaining())
+                return -1;
+            len = Math.min(len, buff.remaining());
+            buff.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public
+        long skip(long n) {
+            var k = (int) Math.max(0, Math.min(n, buff.remaining()));
+            buff.position(buff.position() + k);
+            return k;
+        }
+
+        @Override
+        public
+        int available() { return buff.remaining(); }
+    }
+}
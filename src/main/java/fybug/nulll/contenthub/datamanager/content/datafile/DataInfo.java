@@ -0,0 +1,53 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * <h2>数据文件信息.</h2>
+ * <p>
+ * 只从文件属性中获取，不读取文件内容<br/>
+ * {@link #etag} 由文件的大小、修改时间与文件标识生成，为弱校验值：
+ * 文件标识在删除后可能被重用，修改时间的精度可能只有一秒，
+ * 通过 {@link FileManager#putFile(int, java.io.File)} 放入的文件也会保留原有的修改时间，
+ * 所以内容不同的数据可能得到相同的校验值
+ * <p>
+ * 弱校验值可用于 {@code If-None-Match} ，但不能用于 {@code If-Range} ，带有 {@code If-Range} 的区间请求应当返回整个数据
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see FileManager#getInfo(int)
+ */
+@AllArgsConstructor
+@Data
+public final
+class DataInfo {
+    /** 数据长度 */
+    private long length;
+    /** 最后修改时间，毫秒 */
+    private long lastModified;
+    /** 弱校验值，格式为 {@code W/"..."} */
+    private String etag;
+
+    /**
+     * 从文件属性构造
+     *
+     * @param attr 文件属性
+     *
+     * @return 数据文件信息
+     */
+    static
+    DataInfo of(BasicFileAttributes attr) {
+        var tag = new StringBuilder(48).append("W/\"");
+        tag.append(Long.toHexString(attr.size())).append('-');
+        tag.append(Long.toHexString(attr.lastModifiedTime().to(TimeUnit.NANOSECONDS)));
+        // 文件标识，如 inode
+        var key = attr.fileKey();
+        if (key != null)
+            tag.append('-').append(Integer.toHexString(key.hashCode()));
+        tag.append('"');
+        return new DataInfo(attr.size(), attr.lastModifiedTime().toMillis(), tag.toString());
+    }
+}
@@ -0,0 +1,183 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+
+/**
+ * <h2>数据目录布局.</h2>
+ * <p>
+ * 决定数据条目在目录中的位置，{@link #FLAT} 将所有条目直接放在根目录下，
+ * 使用 {@link #hashed(int)} 会按照 id 的散列值分为多层子目录，每层为两位十六进制前缀，共 256 个分支<br/>
+ * 例如两层布局下 {@code da_123} 会存放在 {@code 3f/a0/da_123}
+ * <p>
+ * {@link FileManager} 的 {@code da_*} 与 {@link Group} 内的 {@code gro_*} 使用同一个布局
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see FileManager#migrate(DataLayout)
+ */
+public final
+class DataLayout {
+    /** 最大层数 */
+    public static final int MAX_LEVELS = 3;
+    /** 平铺布局 */
+    public static final DataLayout FLAT = new DataLayout(0);
+
+    /** 子目录层数 */
+    @Getter private final int levels;
+
+    private
+    DataLayout(int levels) { this.levels = levels; }
+
+    /**
+     * 获取散列布局
+     *
+     * @param levels 子目录层数，{@code 0} 为平铺布局
+     *
+     * @return 布局对象
+     */
+    public static
+    DataLayout hashed(int levels) {
+        if (levels < 0 || levels > MAX_LEVELS)
+            throw new IllegalArgumentException("levels must in 0 - " + MAX_LEVELS);
+        return levels == 0 ? FLAT : new DataLayout(levels);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取条目的路径
+     *
+     * @param root   根目录
+     * @param prefix 条目名称前缀
+     * @param id     条目 id
+     *
+     * @return 条目路径
+     */
+    public
+    Path resolve(Path root, String prefix, int id) {
+        var pa = root;
+        var h = mix(id);
+        for ( int i = 0; i < levels; i++ ){
+            var b = (h >>> (i << 3)) & 0xff;
+            pa = pa.resolve(HEX[b >>> 4] + HEX[b & 0xf]);
+        }
+        return pa.resolve(prefix + id);
+    }
+
+    /**
+     * 遍历该布局下的所有条目
+     * <p>
+     * 只检查该布局中条目所在的深度，不会进入条目内部
+     *
+     * @param root   根目录
+     * @param prefix 条目名称前缀
+     * @param v      条目路径接收接口
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void scan(Path root, String prefix, Consumer<Path> v) throws IOException {
+        if (!Files.isDirectory(root))
+            return;
+
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), levels + 1,
+                           new SimpleFileVisitor<>() {
+                               @Override
+                               public
+                               FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                                   // 只接收条目所在深度的路径
+                                   if (root.relativize(file).getNameCount() == levels + 1
+                                       && file.getFileName().toString().startsWith(prefix))
+                                       v.accept(file);
+                                   return FileVisitResult.CONTINUE;
+                               }
+                           });
+    }
+
+    /**
+     * 移除根目录下空的布局子目录
+     *
+     * @param root 根目录
+     *
+     * @throws IOException 文件系统错误
+     */
+    void prune(Path root) throws IOException {
+        if (levels == 0 || !Files.isDirectory(root))
+            return;
+
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), levels + 1,
+                           new SimpleFileVisitor<>() {
+                               @Override
+                               public
+                               FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                                   if (!dir.equals(root) && dir.getFileName().toString().length() == 2) {
+                                       try {
+                                           Files.deleteIfExists(dir);
+                                       } catch ( DirectoryNotEmptyException ignored ) {
+                                           // 仍有条目
+                                       } catch ( IOException e ) {
+                                           e.printStackTrace();
+                                       }
+                                   }
+                                   return FileVisitResult.CONTINUE;
+                               }
+                           });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    boolean equals(Object o) { return o instanceof DataLayout && ((DataLayout) o).levels == levels; }
+
+    @Override
+    public
+    int hashCode() { return levels; }
+
+    @Override
+    public
+    String toString() { return String.valueOf(levels); }
+
+    /**
+     * 从记录中解析布局
+     *
+     * @param s 布局记录
+     *
+     * @return 布局对象
+     */
+    static
+    DataLayout parse(String s) { return hashed(Integer.parseInt(s.trim())); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 十六进制字符 */
+    private static final String[] HEX =
+            {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "a", "b", "c", "d", "e", "f"};
+
+    /**
+     * 打散 id 的位分布
+     *
+     * @param id 条目 id
+     *
+     * @return 散列值
+     */
+    private static
+    int mix(int id) {
+        id ^= id >>> 16;
+        id *= 0x85ebca6b;
+        id ^= id >>> 13;
+        id *= 0xc2b2ae35;
+        id ^= id >>> 16;
+        return id;
+    }
+}
@@ -1,47 +1,104 @@
 package fybug.nulll.contenthub.datamanager.content.datafile;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.CopyOption;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import fybug.nulll.contenthub.datamanager.DataHub;
 import fybug.nulll.contenthub.datamanager.DataManager;
 import fybug.nulll.contenthub.datamanager.HubControl;
 import fybug.nulll.contenthub.datamanager.content.datafile.error.DataOccuipedException;
 import fybug.nulll.contenthub.datamanager.content.datafile.error.NoDataException;
-import fybug.nulll.pdcache.PDCache;
-import fybug.nulll.pdcache.supplier.memory.SMapCache;
-import fybug.nulll.pdconcurrent.SyLock;
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
+import fybug.nulll.pdconcurrent.fun.tryConsumer;
+import fybug.nulll.pdconcurrent.fun.trySupplier;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.DSYNC;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
  * <h2>文件内容管理器.</h2>
  * 提供数据的管理，组数据对象的获取等。<br/>
- * 内部使用高一致性的 {@link SMapCache} 缓存对象按照 id 存放数据的锁，通过该锁保持单个数据的一致性<br/>
+ * 内部使用固定大小的 {@link StripedLock} 按照 id 散列获取数据的锁，通过该锁保持单个数据的一致性<br/>
  * 不提供 id 记录或管理，需要单独实现并传入
  * <br/><br/>
- * 存储数据前使用 {@link #putTemp(int, InputStream)} 存放到临时文件中，然后使用 {@link #putFile(int, File)} 移动临时文件为数据文件。<br/>
+ * 存储数据前使用 {@link #putTemp(int, InputStream)} 或 {@link #putTemp(int, ReadableByteChannel)} 存放到临时文件中，
+ * 然后使用 {@link #putFile(int, File)} 移动临时文件为数据文件。<br/>
  * 组数据通过 {@link Group} 对象管理单个组的数据。
+ * <br/><br/>
+ * 数据条目在根目录中的位置由 {@link DataLayout} 决定，可以使用 {@link #migrate(DataLayout)} 在线更改
+ * <br/><br/>
+ * 锁等待、文件移动与写入、同步的耗时通过 {@link Instrument} 记录，文件移动与写入同时记录字节数
+ * <br/><br/>
+ * 较大的数据可通过 {@link #getData(int, long, long)} 按照区间读取，{@link #getInfo(int)} 只读取文件属性
  *
  * @author fybug
- * @version 0.0.2
+ * @version 0.0.16
  * @see Group
  */
 public
 class FileManager extends HubControl {
+    /** 布局记录文件名 */
+    private static final String LAYOUT_FILE = "layout";
+    /** 文件移动耗时的指标 */
+    static final String M_MOVE = "file.move";
+    /** 文件移动字节数的指标 */
+    static final String M_MOVE_BYTES = "file.move.bytes";
+    /** 文件写入耗时的指标 */
+    static final String M_WRITE = "file.write";
+    /** 文件写入字节数的指标 */
+    static final String M_WRITE_BYTES = "file.write.bytes";
+    /** 同步耗时的指标 */
+    static final String M_FSYNC = "file.fsync";
+
+    /** 传输缓冲区大小 */
+    private static final int BUFFER_SIZE = 256 * 1024;
+    /** 线程内复用的流传输缓冲区 */
+    private static final ThreadLocal<byte[]> StreamBuffer =
+            ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    /** 线程内复用的通道传输缓冲区 */
+    private static final ThreadLocal<ByteBuffer> ChannelBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
     /** 当前管理的数据根目录 */
     public final Path Dirpath;
     /** id 锁 */
-    private final SMapCache<Integer, SyLock> LockMap;
+    private final StripedLock LockMap = new StripedLock("data");
+    /** 是否使用乐观读取 */
+    private volatile boolean optimisticRead = false;
+    /** 数据映射缓存 */
+    private final MappedDataCache mapped = new MappedDataCache();
+    /** 数据内容缓存 */
+    final ContentCache content = new ContentCache();
     /** 组对象缓存 */
-    private final Map<Integer, Group> groupCache = new HashMap<>();
+    private final GroupCache groupCache = new GroupCache(1024);
+    /** 当前的目录布局 */
+    private volatile DataLayout layout;
+    /** 迁移中的原布局，没有迁移时为 {@code null} */
+    private volatile DataLayout previous;
 
     /**
      * 初始化文件管理器
+     * <p>
+     * 新的数据根目录使用平铺布局
      *
      * @param dataHub 数据容器
      * @param path    数据根路径
@@ -49,13 +106,26 @@ class FileManager extends HubControl {
      * @throws IOException 数据根目录创建失败
      */
     public
-    FileManager(DataHub dataHub, Path path) throws IOException {
+    FileManager(DataHub dataHub, Path path) throws IOException { this(dataHub, path, DataLayout.FLAT); }
+
+    /**
+     * 初始化文件管理器
+     * <p>
+     * 布局只用于新的数据根目录，已有数据的根目录沿用记录中的布局，没有记录的旧目录视为平铺布局，
+     * 需要更改时使用 {@link #migrate(DataLayout)}
+     *
+     * @param dataHub 数据容器
+     * @param path    数据根路径
+     * @param layout  新目录使用的布局
+     *
+     * @throws IOException 数据根目录创建失败
+     */
+    public
+    FileManager(DataHub dataHub, Path path, DataLayout layout) throws IOException {
         super(dataHub);
         Dirpath = path;
         Files.createDirectories(Dirpath);
-        LockMap = PDCache.SMapCache(Integer.class, SyLock.class)
-                         .createdata(id -> SyLock.newRWLock())
-                         .build();
+        loadLayout(layout);
     }
 
     /*--------------------------------------------------------------------------------------------*/
@@ -63,7 +133,8 @@ class FileManager extends HubControl {
     /**
      * 存放临时文件
      * <p>
-     * 临时文件会以 {@code "p{ DataHub id }I{ Data Id }_{ Temp Id }.tmp" } 命名保存
+     * 临时文件会以 {@code "p{ DataHub id }I{ Data Id }_{ Temp Id }.tmp" } 命名保存<br/>
+     * 文件流会直接使用其通道传输，其余的流使用复用的缓冲区批量复制
      *
      * @param id          数据 id
      * @param inputStream 临时文件用的输入流
@@ -74,6 +145,77 @@ class FileManager extends HubControl {
      */
     public
     File putTemp(int id, InputStream inputStream) throws IOException {
+        // 文件流直接使用文件通道
+        if (inputStream instanceof FileInputStream)
+            return putTemp(id, ((FileInputStream) inputStream).getChannel());
+
+        return putTemp(id, out -> {
+            var buff = StreamBuffer.get();
+            int i;
+            while( (i = inputStream.read(buff)) != -1 ){
+                var bb = ByteBuffer.wrap(buff, 0, i);
+                // 通道一次可能只写入一部分
+                while( bb.hasRemaining() )
+                    out.write(bb);
+            }
+        });
+    }
+
+    /**
+     * 存放临时文件
+     * <p>
+     * 临时文件会以 {@code "p{ DataHub id }I{ Data Id }_{ Temp Id }.tmp" } 命名保存<br/>
+     * 来源为 {@link FileChannel} 时使用 {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * 由系统直接复制，其余的通道使用复用的直接缓冲区传输，传入的通道需为阻塞模式
+     *
+     * @param id      数据 id
+     * @param channel 临时文件用的输入通道
+     *
+     * @return 临时文件路径
+     *
+     * @throws IOException 无法创建临时目录 | 无法写入临时文件
+     */
+    public
+    File putTemp(int id, ReadableByteChannel channel) throws IOException {
+        return putTemp(id, out -> {
+            if (channel instanceof FileChannel) {
+                /* 文件间直接传输 */
+                var in = (FileChannel) channel;
+                long pos = in.position();
+                long size = in.size();
+                while( pos < size ){
+                    var n = in.transferTo(pos, size - pos, out);
+                    // 来源文件在传输中变短
+                    if (n <= 0)
+                        break;
+                    pos += n;
+                }
+                in.position(pos);
+            } else {
+                /* 缓冲区传输 */
+                var buff = ChannelBuffer.get().clear();
+                while( channel.read(buff) != -1 ){
+                    buff.flip();
+                    while( buff.hasRemaining() )
+                        out.write(buff);
+                    buff.clear();
+                }
+            }
+        });
+    }
+
+    /**
+     * 创建临时文件并写入数据
+     *
+     * @param id     数据 id
+     * @param writer 数据写入接口
+     *
+     * @return 临时文件路径
+     *
+     * @throws IOException 无法创建临时目录 | 无法写入临时文件
+     */
+    private
+    File putTemp(int id, tryConsumer<FileChannel, IOException> writer) throws IOException {
         var patyh = DataManager.getTempFile().toFile();
 
         /* 检查是否能创建文件夹 */
@@ -87,12 +229,9 @@ class FileManager extends HubControl {
         var tmpfile =
                 File.createTempFile("h" + getDataHub().getId() + "I" + id + "_", ".tmp", patyh);
 
-        /* 输出到文件流中 */
-        try ( var out = Files.newOutputStream(tmpfile.toPath()) ) {
-            int i;
-            while( (i = inputStream.read()) != -1 )
-                out.write(i);
-            out.flush();
+        /* 输出到文件通道中 */
+        try ( var out = FileChannel.open(tmpfile.toPath(), WRITE) ) {
+            writer.accept(out);
         }
 
         return tmpfile;
@@ -109,9 +248,41 @@ class FileManager extends HubControl {
      */
     public
     void putFile(int id, File tempfile) throws Exception {
-        LockMap.get(id)
-               .trywrite(IOException.class, () -> Files.move(tempfile.toPath(), Dirpath.resolve(Path.of(
-                       "da_" + id)), REPLACE_EXISTING));
+        LockMap.get(id).trywrite(IOException.class, () -> {
+            place(tempfile.toPath(), Dirpath, "da_", id);
+            mapped.invalidate(id);
+            content.invalidate(ContentCache.key(id, -1));
+        });
+    }
+
+    /**
+     * 批量将临时文件存放为数据记录
+     * <p>
+     * 先等待所有数据跨线程的读取释放，再按照锁段下标依次获取所有数据的写锁，全部获取后再移动文件<br/>
+     * 已有的数据会先移动到同目录下的备份文件，发生错误时已移动的临时文件会被移回原位置并恢复备份，
+     * 所有数据保持原样，全部成功后才删除备份
+     *
+     * @param files 数据 id 与临时文件的映射
+     *
+     * @return 存放的数据 id ，从小到大排列
+     *
+     * @throws IOException           无法移动文件
+     * @throws DataOccuipedException 数据位置被占用
+     * @throws Exception             锁缓存发生错误
+     */
+    public
+    int[] putFiles(Map<Integer, File> files) throws Exception {
+        var ids = files.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        if (ids.length == 0)
+            return ids;
+
+        var stripes = IntStream.of(ids).map(LockMap::indexOf).distinct().sorted().toArray();
+        // 锁段的写锁不会等待跨线程的读取
+        LockMap.drain(ids, Exception.class, () -> writeAll(stripes, 0, () -> {
+            placeAll(ids, files);
+            return null;
+        }));
+        return ids;
     }
 
     /**
@@ -127,19 +298,11 @@ class FileManager extends HubControl {
      */
     public
     Path getDatapath(final int id) throws Exception {
-        return LockMap.get(id).tryread(Exception.class, () -> {
-            var pa = Dirpath.resolve(Path.of("da_" + id));
+        trySupplier<Path, Exception> get = () -> checkData(id);
 
-            // 检查数据是否存在
-            if (Files.isExecutable(pa)) {
-                // 数据被占用
-                if (Files.isDirectory(pa)) {
-                    throw new DataOccuipedException(id);
-                }
-                return pa;
-            }
-            throw new NoDataException(id);
-        });
+        if (optimisticRead)
+            return LockMap.get(id).tryoptimistic(Exception.class, get, pa -> {});
+        return LockMap.get(id).tryread(Exception.class, get);
     }
 
     /**
@@ -154,9 +317,161 @@ class FileManager extends HubControl {
      */
     public
     InputStream getData(int id) throws Exception {
+        // 经过内容缓存读取
+        if (content.enabled()) {
+            return LockMap.get(id)
+                          .tryread(IOException.class,
+                                   () -> content.open(ContentCache.key(id, -1), resolve(Dirpath, "da_", id)));
+        }
+
+        trySupplier<InputStream, IOException> get = () -> Files.newInputStream(resolve(Dirpath, "da_", id));
+
+        if (optimisticRead) {
+            return LockMap.get(id).tryoptimistic(IOException.class, get, in -> {
+                try {
+                    in.close();
+                } catch ( IOException e ) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        return LockMap.get(id).tryread(IOException.class, get);
+    }
+
+    /**
+     * 读取数据的一段内容
+     * <p>
+     * 用于按照区间读取较大的数据，不经过内容缓存，返回的通道关闭前数据被替换或删除不影响读取
+     *
+     * @param id     数据的 id
+     * @param from   开始的位置
+     * @param length 读取的长度，超出数据末尾的部分忽略
+     *
+     * @return 读取通道
+     *
+     * @throws IOException           无法打开文件
+     * @throws NoDataException       无数据
+     * @throws DataOccuipedException 数据位置被占用
+     * @throws Exception             锁缓存发生错误
+     */
+    public
+    ReadableByteChannel getData(int id, long from, long length) throws Exception {
+        if (from < 0 || length < 0)
+            throw new IllegalArgumentException("bad range: " + from + "+" + length);
+        return LockMap.get(id).tryread(Exception.class, () -> {
+            var ch = FileChannel.open(checkData(id));
+            return new RangeChannel(ch, from, Math.max(0, Math.min(length, ch.size() - from)));
+        });
+    }
+
+    /**
+     * 获取数据的文件信息
+     * <p>
+     * 只读取文件属性
+     *
+     * @param id 数据的 id
+     *
+     * @return 数据长度、修改时间与弱校验值
+     *
+     * @throws IOException           无法读取文件属性
+     * @throws NoDataException       无数据
+     * @throws DataOccuipedException 数据位置被占用
+     * @throws Exception             锁缓存发生错误
+     */
+    public
+    DataInfo getInfo(int id) throws Exception {
         return LockMap.get(id)
-                      .tryread(IOException.class, () -> Files.newInputStream(Dirpath.resolve(Path.of(
-                              "da_" + id))));
+                      .tryread(Exception.class,
+                               () -> DataInfo.of(Files.readAttributes(checkData(id), BasicFileAttributes.class)));
+    }
+
+    /**
+     * 获取数据内容的内存映射
+     * <p>
+     * 大小不超过 {@link #setMappedRead(int, long)} 阈值的数据会保留映射，重复读取时不再访问磁盘<br/>
+     * 返回的是只读视图，数据被替换或删除后视图中仍为原来的内容
+     *
+     * @param id 数据的 id
+     *
+     * @return 数据内容，未开启映射或数据超出阈值时为 {@code null}
+     *
+     * @throws IOException           无法映射文件
+     * @throws NoDataException       无数据
+     * @throws DataOccuipedException 数据位置被占用
+     * @throws Exception             锁缓存发生错误
+     */
+    public
+    ByteBuffer mapData(int id) throws Exception {
+        return LockMap.get(id).tryread(Exception.class, () -> mapped.get(id, checkData(id)));
+    }
+
+    /**
+     * 设置映射读取的条件
+     *
+     * @param threshold 可映射的最大数据大小，小于等于 {@code 0} 为关闭
+     * @param budget    保留的映射总大小上限
+     */
+    public
+    void setMappedRead(int threshold, long budget) { mapped.configure(threshold, budget); }
+
+    /**
+     * 获取映射读取的统计数据
+     *
+     * @return 统计数据，{@link CacheStats#getBytes()} 为保留的映射总大小
+     */
+    public
+    CacheStats getMappedStats() { return mapped.stats(); }
+
+    /**
+     * 设置内容缓存的容量
+     * <p>
+     * 开启后 {@link #getData(int)} 与 {@link Group#readData(int)} 会将不超过单项上限的数据缓存在堆外内存中
+     *
+     * @param maxItem  单项数据的大小上限，小于等于 {@code 0} 为关闭
+     * @param capacity 缓存占用的字节数上限
+     */
+    public
+    void setContentCache(int maxItem, long capacity) { content.configure(maxItem, capacity); }
+
+    /**
+     * 获取内容缓存的统计数据
+     *
+     * @return 统计数据，{@link CacheStats#getServed()} 为命中时提供的字节数
+     */
+    public
+    CacheStats getContentStats() { return content.stats(); }
+
+    /**
+     * 异步读取数据的内容
+     * <p>
+     * 数据块按照顺序交给回调，回调中的缓冲区会在回调返回后复用<br/>
+     * 读取期间持有数据的读取，对该数据的写入会等待传输结束
+     *
+     * @param id    数据的 id
+     * @param chunk 数据块回调
+     *
+     * @return 读取的总字节数，数据不存在时以 {@link NoDataException} 失败
+     */
+    public
+    CompletableFuture<Long> readDataAsync(int id, Consumer<ByteBuffer> chunk) {
+        var lock = LockMap.get(id);
+        return AsyncRead.read(lock::pin, () -> checkData(id), lock::unpin, chunk);
+    }
+
+    /**
+     * 获取数据内容的发布者
+     * <p>
+     * 订阅时打开数据，按照订阅者的请求数量读取，每个数据块使用独立的缓冲区<br/>
+     * 订阅期间持有数据的读取，直到读取完成、失败或取消订阅
+     *
+     * @param id 数据的 id
+     *
+     * @return 数据发布者，只能订阅一次
+     */
+    public
+    Flow.Publisher<ByteBuffer> publishData(int id) {
+        var lock = LockMap.get(id);
+        return AsyncRead.publisher(lock::pin, () -> checkData(id), lock::unpin);
     }
 
     /**
@@ -169,9 +484,11 @@ class FileManager extends HubControl {
      */
     public
     void removeData(int id) throws Exception {
-        LockMap.get(id)
-               .trywrite(IOException.class, () -> Files.deleteIfExists(Dirpath.resolve(Path.of(
-                       "da_" + id))));
+        LockMap.get(id).trywrite(IOException.class, () -> {
+            delete(Dirpath, "da_", id);
+            mapped.invalidate(id);
+            content.invalidate(ContentCache.key(id, -1));
+        });
     }
 
     /*-------------------------------*/
@@ -188,15 +505,24 @@ class FileManager extends HubControl {
      */
     public
     Group createGroup(int id) throws Exception {
+        var g = groupCache.get(id);
+        if (g != null)
+            return g;
+
         return LockMap.get(id).trywrite(Exception.class, () -> {
-            if (!groupCache.containsKey(id))
-                groupCache.put(id, Group.create(id, this, LockMap.get(id)));
-            return groupCache.get(id);
+            var group = groupCache.revive(id);
+            if (group == null) {
+                group = Group.create(id, this, LockMap.get(id));
+                groupCache.put(group);
+            }
+            return group;
         });
     }
 
     /**
      * 获取组对象
+     * <p>
+     * 命中缓存时不需要加锁
      *
      * @param id 组数据 id
      *
@@ -207,10 +533,17 @@ class FileManager extends HubControl {
      */
     public
     Group getGroup(int id) throws Exception {
+        var g = groupCache.get(id);
+        if (g != null)
+            return g;
+
         return LockMap.get(id).trywrite(Exception.class, () -> {
-            if (!groupCache.containsKey(id))
-                groupCache.put(id, Group.get(id, this, LockMap.get(id)));
-            return groupCache.get(id);
+            var group = groupCache.revive(id);
+            if (group == null) {
+                group = Group.get(id, this, LockMap.get(id));
+                groupCache.put(group);
+            }
+            return group;
         });
     }
 
@@ -220,4 +553,426 @@ class FileManager extends HubControl {
      * @param id 组数据的 id
      */
     void removeGroup(int id) { groupCache.remove(id); }
+
+    /**
+     * 设置组对象缓存的容量
+     *
+     * @param size 最多缓存的组对象数量
+     */
+    public
+    void setGroupCacheSize(int size) { groupCache.setCapacity(size); }
+
+    /**
+     * 获取组对象缓存的统计数据
+     *
+     * @return 统计数据
+     */
+    public
+    CacheStats getGroupCacheStats() { return groupCache.stats(); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 设置是否使用乐观读取
+     * <p>
+     * 开启后 {@link #getDatapath(int)} 与 {@link #getData(int)} 会先在不获取读锁的情况下读取，
+     * 期间发生写入时丢弃结果并退回读锁
+     *
+     * @param optimistic 是否开启
+     */
+    public
+    void setOptimisticRead(boolean optimistic) { optimisticRead = optimistic; }
+
+    /**
+     * 获取当前的目录布局
+     *
+     * @return 目录布局
+     */
+    public
+    DataLayout getLayout() { return layout; }
+
+    /**
+     * 在线迁移目录布局
+     * <p>
+     * 逐个锁定条目并移动到新布局中，组数据内的 {@code gro_*} 也会一同迁移，迁移期间其余条目可以正常读写<br/>
+     * 迁移中断后会记录原布局，读取时会回退查找原布局中的条目，再次调用即可继续迁移<br/>
+     * 已打开的组对象在其组空间迁移后会在持有组锁时重新打开记录，之后的读写使用新的位置
+     *
+     * @param target 新的布局
+     *
+     * @throws IOException 文件系统错误
+     * @throws Exception   锁缓存发生错误
+     */
+    public synchronized
+    void migrate(DataLayout target) throws Exception {
+        // 未完成的迁移从原布局继续
+        var from = previous == null ? layout : previous;
+        if (from.equals(target)) {
+            previous = null;
+            layout = target;
+            writeLayout();
+            return;
+        }
+
+        /* 记录迁移状态 */
+        previous = from;
+        layout = target;
+        writeLayout();
+
+        /* 收集原布局中的条目 */
+        var ids = IntStream.builder();
+        from.scan(Dirpath, "da_", p -> {
+            var id = parseId(p, "da_");
+            if (id != null)
+                ids.add(id);
+        });
+
+        /* 逐个迁移 */
+        for ( int id : ids.build().toArray() ){
+            LockMap.get(id).trywrite(IOException.class, () -> {
+                migrate(Dirpath, "da_", id, from, target);
+                // 组记录的路径已经改变
+                var g = groupCache.revive(id);
+                if (g != null)
+                    g.relocate();
+            });
+        }
+        from.prune(Dirpath);
+
+        previous = null;
+        writeLayout();
+    }
+
+    /**
+     * 迁移单个条目
+     * <p>
+     * 如果条目为组空间则迁移其内部的数据，需在持有条目的写锁时调用
+     *
+     * @param root   根目录
+     * @param prefix 条目名称前缀
+     * @param id     条目 id
+     * @param from   原布局
+     * @param to     新布局
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void migrate(Path root, String prefix, int id, DataLayout from, DataLayout to) throws IOException {
+        var old = from.resolve(root, prefix, id);
+        var pa = to.resolve(root, prefix, id);
+
+        if (Files.exists(old)) {
+            if (Files.exists(pa)) {
+                // 迁移期间已写入新数据
+                if (!Files.isDirectory(old))
+                    Files.delete(old);
+            } else {
+                Files.createDirectories(pa.getParent());
+                move(old, pa, ATOMIC_MOVE);
+            }
+        }
+
+        /* 迁移组内数据 */
+        if (Files.isDirectory(pa)) {
+            var ids = IntStream.builder();
+            from.scan(pa, "gro_", p -> {
+                var gid = parseId(p, "gro_");
+                if (gid != null)
+                    ids.add(gid);
+            });
+            for ( int gid : ids.build().toArray() )
+                migrate(pa, "gro_", gid, from, to);
+            from.prune(pa);
+        }
+    }
+
+    /*-------------------------------*/
+
+    /**
+     * 检查数据并获取路径
+     *
+     * @param id 数据 id
+     *
+     * @return 数据的路径
+     *
+     * @throws NoDataException       无数据
+     * @throws DataOccuipedException 数据位置被占用
+     */
+    private
+    Path checkData(int id) throws Exception {
+        var pa = resolve(Dirpath, "da_", id);
+
+        // 检查数据是否存在
+        if (Files.exists(pa)) {
+            // 数据被占用
+            if (Files.isDirectory(pa)) {
+                throw new DataOccuipedException(id);
+            }
+            return pa;
+        }
+        throw new NoDataException(id);
+    }
+
+    /**
+     * 依次获取锁段的写锁并执行
+     *
+     * @param stripes 锁段下标，从小到大排列
+     * @param i       当前获取的下标位置
+     * @param run     全部获取后执行的操作
+     * @param <T>     返回的数据类型
+     *
+     * @return 操作的结果
+     *
+     * @throws Exception 操作发生错误
+     */
+    private
+    <T> T writeAll(int[] stripes, int i, trySupplier<T, Exception> run) throws Exception {
+        if (i == stripes.length)
+            return run.get();
+        return LockMap.stripe(stripes[i]).trywrite(Exception.class, () -> writeAll(stripes, i + 1, run));
+    }
+
+    /**
+     * 移动所有临时文件为数据，发生错误时全部恢复
+     * <p>
+     * 需要持有所有数据的写锁
+     *
+     * @param ids   数据 id
+     * @param files 数据 id 与临时文件的映射
+     *
+     * @throws IOException           无法移动文件
+     * @throws DataOccuipedException 数据位置被占用
+     */
+    private
+    void placeAll(int[] ids, Map<Integer, File> files) throws Exception {
+        // 原有数据的位置与备份
+        var origin = new Path[ids.length];
+        var backup = new Path[ids.length];
+        var placed = 0;
+
+        try {
+            for ( ; placed < ids.length; placed++ ){
+                var id = ids[placed];
+                var old = resolve(Dirpath, "da_", id);
+                // 数据位置被占用
+                if (Files.isDirectory(old))
+                    throw new DataOccuipedException(id);
+                if (Files.exists(old)) {
+                    origin[placed] = old;
+                    backup[placed] = old.resolveSibling(old.getFileName() + ".bak");
+                    move(old, backup[placed], REPLACE_EXISTING);
+                }
+                place(files.get(id).toPath(), Dirpath, "da_", id);
+            }
+        } catch ( Exception e ) {
+            /* 移回临时文件并恢复备份，包括失败的那一项 */
+            for ( int i = Math.min(placed, ids.length - 1); i >= 0; i-- ){
+                try {
+                    if (i < placed)
+                        move(layout.resolve(Dirpath, "da_", ids[i]), files.get(ids[i]).toPath(), REPLACE_EXISTING);
+                    if (backup[i] != null)
+                        move(backup[i], origin[i], REPLACE_EXISTING);
+                } catch ( IOException ex ) {
+                    e.addSuppressed(ex);
+                }
+            }
+            throw e;
+        } finally {
+            for ( int id : ids ){
+                mapped.invalidate(id);
+                content.invalidate(ContentCache.key(id, -1));
+            }
+        }
+
+        /* 全部成功后删除备份 */
+        for ( Path b : backup ){
+            if (b != null)
+                Files.deleteIfExists(b);
+        }
+    }
+
+    /**
+     * 获取条目路径
+     * <p>
+     * 迁移中如果新布局中没有该条目，会返回原布局中仍存在的条目
+     *
+     * @param root   根目录
+     * @param prefix 条目名称前缀
+     * @param id     条目 id
+     *
+     * @return 条目路径
+     */
+    Path resolve(Path root, String prefix, int id) {
+        var pa = layout.resolve(root, prefix, id);
+        var prev = previous;
+        if (prev != null && !Files.exists(pa)) {
+            var old = prev.resolve(root, prefix, id);
+            if (Files.exists(old))
+                return old;
+        }
+        return pa;
+    }
+
+    /**
+     * 将文件放入条目位置
+     * <p>
+     * 迁移中会删除原布局中的旧条目
+     *
+     * @param src    要放入的文件
+     * @param root   根目录
+     * @param prefix 条目名称前缀
+     * @param id     条目 id
+     *
+     * @throws IOException 文件系统错误
+     */
+    void place(Path src, Path root, String prefix, int id) throws IOException {
+        var now = layout;
+        var pa = now.resolve(root, prefix, id);
+        if (now.getLevels() > 0)
+            Files.createDirectories(pa.getParent());
+        move(src, pa, REPLACE_EXISTING);
+
+        // 移除原布局中的旧条目
+        var prev = previous;
+        if (prev != null && !prev.equals(now))
+            Files.deleteIfExists(prev.resolve(root, prefix, id));
+    }
+
+    /**
+     * 删除条目
+     *
+     * @param root   根目录
+     * @param prefix 条目名称前缀
+     * @param id     条目 id
+     *
+     * @throws IOException 文件系统错误
+     */
+    void delete(Path root, String prefix, int id) throws IOException {
+        Files.deleteIfExists(layout.resolve(root, prefix, id));
+        var prev = previous;
+        if (prev != null)
+            Files.deleteIfExists(prev.resolve(root, prefix, id));
+    }
+
+    /**
+     * 遍历条目
+     * <p>
+     * 迁移中会同时遍历原布局
+     *
+     * @param root   根目录
+     * @param prefix 条目名称前缀
+     * @param v      条目路径接收接口
+     *
+     * @throws IOException 文件系统错误
+     */
+    void scan(Path root, String prefix, Consumer<Path> v) throws IOException {
+        var now = layout;
+        now.scan(root, prefix, v);
+        var prev = previous;
+        if (prev != null && !prev.equals(now))
+            prev.scan(root, prefix, v);
+    }
+
+    /**
+     * 读取布局记录
+     * <p>
+     * 没有记录时，已有数据的根目录视为平铺布局，否则使用传入的布局
+     *
+     * @param init 新目录使用的布局
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void loadLayout(DataLayout init) throws IOException {
+        var pa = Dirpath.resolve(LAYOUT_FILE);
+
+        if (Files.isRegularFile(pa)) {
+            var s = Files.readString(pa).split(":");
+            layout = DataLayout.parse(s[0]);
+            previous = s.length > 1 ? DataLayout.parse(s[1]) : null;
+            return;
+        }
+
+        /* 检查旧数据 */
+        try ( var list = Files.list(Dirpath) ) {
+            layout = list.anyMatch(p -> p.getFileName().toString().startsWith("da_")) ? DataLayout.FLAT : init;
+        }
+        writeLayout();
+    }
+
+    /**
+     * 写入布局记录
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void writeLayout() throws IOException {
+        var prev = previous;
+        writeString(Dirpath.resolve(LAYOUT_FILE), prev == null ? layout.toString() : layout + ":" + prev,
+                    WRITE, CREATE, TRUNCATE_EXISTING, DSYNC);
+    }
+
+    /**
+     * 移动文件
+     * <p>
+     * 记录耗时与移动的字节数
+     *
+     * @param src     源文件
+     * @param target  目标路径
+     * @param options 移动选项
+     *
+     * @throws IOException 文件系统错误
+     */
+    static
+    void move(Path src, Path target, CopyOption... options) throws IOException {
+        var t = Instrument.start();
+        var size = t == 0 || Files.isDirectory(src) ? 0 : Files.size(src);
+        Files.move(src, target, options);
+        if (t != 0) {
+            Instrument.time(M_MOVE, t);
+            Instrument.count(M_MOVE_BYTES, size);
+        }
+    }
+
+    /**
+     * 写入文本文件
+     * <p>
+     * 记录耗时与写入的字节数
+     *
+     * @param path    文件路径
+     * @param s       内容
+     * @param options 打开选项
+     *
+     * @throws IOException 文件系统错误
+     */
+    static
+    void writeString(Path path, String s, OpenOption... options) throws IOException {
+        var t = Instrument.start();
+        var data = s.getBytes(UTF_8);
+        Files.write(path, data, options);
+        if (t != 0) {
+            Instrument.time(M_WRITE, t);
+            Instrument.count(M_WRITE_BYTES, data.length);
+        }
+    }
+
+    /**
+     * 解析条目的 id
+     *
+     * @param pa     条目路径
+     * @param prefix 条目名称前缀
+     *
+     * @return 条目 id ，不是条目时为 {@code null}
+     */
+    static
+    Integer parseId(Path pa, String prefix) {
+        var name = pa.getFileName().toString();
+        if (!name.startsWith(prefix))
+            return null;
+        try {
+            return Integer.parseInt(name.substring(prefix.length()));
+        } catch ( NumberFormatException e ) {
+            return null;
+        }
+    }
 }
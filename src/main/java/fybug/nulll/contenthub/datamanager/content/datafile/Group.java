@@ -1,30 +1,30 @@
 package fybug.nulll.contenthub.datamanager.content.datafile;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import fybug.nulll.contenthub.datamanager.content.datafile.error.DataOccuipedException;
 import fybug.nulll.contenthub.datamanager.content.datafile.error.NoDataException;
-import fybug.nulll.pdcache.PDCache;
-import fybug.nulll.pdcache.supplier.memory.SMapCache;
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
 import fybug.nulll.pdconcurrent.SyLock;
 import lombok.Getter;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
-import static java.nio.file.StandardOpenOption.APPEND;
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.DSYNC;
-import static java.nio.file.StandardOpenOption.SYNC;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
  * <h2>数据组管理对象.</h2>
@@ -32,13 +32,27 @@ import static java.nio.file.StandardOpenOption.WRITE;
  * 使用 {@link Group#create(int, FileManager, SyLock)} 和 {@link Group#get(int, FileManager, SyLock)} 进行构造<br/>
  * 用于管理一组数据以及其组文件夹<br/>
  * 为了保持数据一致性，在对数据进行操作的时候会锁住记录文件与组对象
+ * <p>
+ * 组内数据记录使用 {@link GroupIndex} 保存，移除记录只写入墓碑，墓碑过多时在后台整理<br/>
+ * 记录的同步通过 {@link GroupCommit} 合并，并发的写入共用一次同步<br/>
+ * 组内 id 由 {@link IdAllocator} 在内存中分配<br/>
+ * 记录锁与 id 锁的等待时间分别记录为 {@code lock.group.record.*} 与 {@code lock.group.member.*}<br/>
+ * 修改数据时先等待该数据跨线程的读取释放再获取锁，持有记录锁时不会等待异步传输<br/>
+ * 迁移目录布局移动组空间后，组对象会通过 {@link #relocate()} 在新的位置重新打开记录
  *
  * @author fybug
- * @version 0.0.3
+ * @version 0.0.11
  * @see FileManager
  */
 public
 class Group {
+    /** 后台整理记录用的线程 */
+    private static final ExecutorService Compactor = Executors.newSingleThreadExecutor(r -> {
+        var t = new Thread(r, "group-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
     /** 当前文件管理器 */
     private final FileManager fm;
     /** 数据组的 id */
@@ -47,14 +61,24 @@ class Group {
     /** 组锁 */
     private final SyLock lock;
     /** 记录文件锁 */
-    private final SyLock reicLock = SyLock.newRWLock();
+    private final SyLock reicLock = StripedLock.single("group.record");
     /** id 锁 */
-    private final SMapCache<Integer, SyLock> idLock;
+    private final StripedLock idLock = new StripedLock(16, "group.member");
+    /** 组内数据记录，只在持有组的写锁时替换 */
+    private GroupIndex index;
+    /** 记录同步 */
+    private final GroupCommit commit;
+    /** id 分配器，只在持有组的写锁时替换 */
+    private IdAllocator ids;
+    /** 是否已提交整理任务 */
+    private final AtomicBoolean compacting = new AtomicBoolean();
 
     /*--------------------------------------------------------------------------------------------*/
 
     /**
      * 构造组对象
+     * <p>
+     * 需要通过 {@link #reopen()} 打开记录后才能使用
      *
      * @param id          数据组 id
      * @param fileManager 文件管理对象
@@ -65,10 +89,7 @@ class Group {
         this.id = id;
         fm = fileManager;
         this.lock = lock;
-        // 锁缓存
-        idLock = PDCache.SMapCache(Integer.class, SyLock.class)
-                        .createdata(i -> SyLock.newRWLock())
-                        .build();
+        commit = new GroupCommit(this::sync);
     }
 
     /** 当前管理的数据根目录 */
@@ -93,57 +114,76 @@ class Group {
             var rootpa = checkGroup(this);
 
             return reicLock.tryread(Exception.class, () -> {
-                // 生成当前数据路径
-                Path dapa = rootpa.resolve(Path.of("gro_" + ids));
-                return idLock.get(ids).tryread(Exception.class, () -> {
-                    /* 检查数据是否可用 */
-                    if (Files.isExecutable(dapa)) {
-                        // 数据被占用
-                        if (Files.isDirectory(dapa)) {
-                            throw new DataOccuipedException(ids);
-                        }
-
-                        // 交由外部处理数据流
-                        return Files.newInputStream(dapa);
-                    } else {
-                        throw new NoDataException(ids);
-                    }
-                });
+                // 交由外部处理数据流
+                return idLock.get(ids)
+                             .tryread(Exception.class,
+                                      () -> fm.content.open(ContentCache.key(id, ids), checkData(rootpa, ids)));
             });
         });
     }
 
+    /**
+     * 异步读取数据内容
+     * <p>
+     * 数据块按照顺序交给回调，回调中的缓冲区会在回调返回后复用<br/>
+     * 读取期间持有组与该数据的读取，删除组与修改该数据会等待传输结束
+     *
+     * @param ids   数据的 id
+     * @param chunk 数据块回调
+     *
+     * @return 读取的总字节数，数据不存在时以 {@link NoDataException} 失败
+     */
+    public
+    CompletableFuture<Long> readDataAsync(int ids, Consumer<ByteBuffer> chunk) {
+        var data = idLock.get(ids);
+        return AsyncRead.read(() -> pin(data), () -> checkData(checkGroup(this), ids), () -> unpin(data), chunk);
+    }
+
+    /**
+     * 获取数据内容的发布者
+     * <p>
+     * 订阅时打开数据，按照订阅者的请求数量读取，每个数据块使用独立的缓冲区<br/>
+     * 订阅期间持有组与该数据的读取，直到读取完成、失败或取消订阅
+     *
+     * @param ids 数据的 id
+     *
+     * @return 数据发布者，只能订阅一次
+     */
+    public
+    Flow.Publisher<ByteBuffer> publishData(int ids) {
+        var data = idLock.get(ids);
+        return AsyncRead.publisher(() -> pin(data), () -> checkData(checkGroup(this), ids), () -> unpin(data));
+    }
+
+    /**
+     * 获取组内数据 id 列表
+     * <p>
+     * 为防止内存溢出，数据采用接口逐个输出，而不是返回列表<br/>
+     * 输出的顺序为数据放入的顺序
+     *
+     * @param v 数据监听接口，每次传入单个 id 记录
+     *
+     * @throws IOException 文件系统错误
+     * @see #forEachDataId(IntConsumer)
+     */
+    public
+    void listDataId(Consumer<Integer> v) throws IOException { forEachDataId(v::accept); }
+
     /**
      * 获取组内数据 id 列表
      * <p>
-     * 为防止内存溢出，数据采用接口逐个输出，而不是返回列表
+     * 与 {@link #listDataId(Consumer)} 相同，但 id 不经过装箱
      *
      * @param v 数据监听接口，每次传入单个 id 记录
      *
      * @throws IOException 文件系统错误
      */
     public
-    void listDataId(Consumer<Integer> v) throws IOException {
+    void forEachDataId(IntConsumer v) throws IOException {
         lock.tryread(IOException.class, () -> {
-            // 组文件夹的路径
-            var rootpa = checkGroup(this);
-            // 组内数据记录文件路径
-            var grouppa = rootpa.resolve(Path.of("h" + getId() + "_re"));
-
-            /* 逐行读取记录 */
-            reicLock.tryread(IOException.class, () -> {
-                String s;
-                try ( BufferedReader reader = Files.newBufferedReader(grouppa) ) {
-                    /* 逐行读取 */
-                    while( (s = reader.readLine()) != null ){
-                        // 去除空数据
-                        if ("".equals(s = s.trim()))
-                            continue;
-                        // 交由输出处理
-                        v.accept(Integer.parseInt(s));
-                    }
-                }
-            });
+            checkGroup(this);
+            // 顺序扫描记录
+            reicLock.read(() -> index.forEach(v));
         });
     }
 
@@ -160,34 +200,67 @@ class Group {
      * @throws DataOccuipedException 数据位置被占用
      */
     public
-    int putData(File tmpfile) throws Exception {
+    int putData(File tmpfile) throws Exception { return putAll(List.of(tmpfile))[0]; }
+
+    /**
+     * 批量放入数据到组内
+     * <p>
+     * 只获取一次锁，分配连续的 id 并移动所有文件后写入一次记录，所有数据共用一次同步<br/>
+     * 移动中发生错误时已移动的文件会被移回原位置，记录不做修改
+     *
+     * @param tmpfiles 临时文件路径列表
+     *
+     * @return 按照传入顺序分配的组内 id
+     *
+     * @throws IOException           文件系统发生错误
+     * @throws DataOccuipedException 数据位置被占用
+     */
+    public
+    int[] putAll(List<File> tmpfiles) throws Exception {
         return lock.tryread(Exception.class, () -> {
             // 组文件夹的路径
             var rootpa = checkGroup(this);
-            // 组内 id 的记录文件路径
-            var idpa = rootpa.resolve(Path.of("h" + getId() + "_id"));
-            // 组内数据记录文件路径
-            var grouppa = rootpa.resolve(Path.of("h" + getId() + "_re"));
+            // 分配的 id
+            var nowids = new int[tmpfiles.size()];
+            if (nowids.length == 0)
+                return nowids;
 
             /* 写入数据并修改记录 */
-            return reicLock.trywrite(Exception.class, () -> {
-                // 组内当前最大 id
-                var nowid = Integer.parseInt(Files.readString(idpa)) + 1;
-                // 数据的路径
-                var dapa = rootpa.resolve(Path.of("gro_" + nowid));
-
-                // 检查数据是否被占用
-                if (Files.isDirectory(dapa))
-                    throw new DataOccuipedException(nowid);
-                // 移动临时文件为组内数据文件
-                Files.move(tmpfile.toPath(), dapa, REPLACE_EXISTING);
-
-                // 重写记录文件
-                Files.writeString(idpa, String.valueOf(nowid), WRITE, CREATE, TRUNCATE_EXISTING, DSYNC);
-                Files.writeString(grouppa,
-                                  nowid + System.lineSeparator(), WRITE, APPEND, CREATE, SYNC);
-                return nowid;
+            var batch = reicLock.trywrite(Exception.class, () -> {
+                // 分配连续的 id ，在记录锁内分配以保持记录有序
+                var first = ids.next(nowids.length);
+                var moved = 0;
+
+                try {
+                    for ( ; moved < nowids.length; moved++ ){
+                        // 检查数据是否被占用
+                        if (Files.isDirectory(fm.resolve(rootpa, "gro_", first + moved)))
+                            throw new DataOccuipedException(first + moved);
+                        // 移动临时文件为组内数据文件
+                        fm.place(tmpfiles.get(moved).toPath(), rootpa, "gro_", first + moved);
+                        nowids[moved] = first + moved;
+                    }
+                } catch ( Exception e ) {
+                    /* 移回已移动的文件 */
+                    for ( int i = 0; i < moved; i++ ){
+                        try {
+                            FileManager.move(fm.resolve(rootpa, "gro_", nowids[i]),
+                                             tmpfiles.get(i).toPath(), REPLACE_EXISTING);
+                        } catch ( IOException ex ) {
+                            e.addSuppressed(ex);
+                        }
+                    }
+                    throw e;
+                }
+
+                // 追加数据记录，同步由组提交完成
+                for ( int nowid : nowids )
+                    index.append(nowid);
+                return commit.join();
             });
+            // 等待记录同步
+            commit.await(batch);
+            return nowids;
         });
     }
 
@@ -203,29 +276,32 @@ class Group {
      */
     public
     void setData(int groupid, File tmpfile) throws Exception {
-        lock.tryread(Exception.class, () -> {
+        // 在获取锁之前等待异步传输结束
+        idLock.get(groupid).drain(Exception.class, () -> lock.tryread(Exception.class, () -> {
             // 组文件夹的路径
             var rootpa = checkGroup(this);
 
             reicLock.tryread(Exception.class, () -> {
-                // 数据路径
-                var pa = rootpa.resolve(Path.of("gro_" + groupid));
-
                 /* 修改数据 */
                 idLock.get(groupid).trywrite(Exception.class, () -> {
+                    // 数据路径
+                    var pa = fm.resolve(rootpa, "gro_", groupid);
+
                     // 检查是否是数据
-                    if (Files.isExecutable(pa)) {
+                    if (Files.exists(pa)) {
                         // 并非数据文件且被占用
                         if (Files.isDirectory(pa)) {
                             throw new DataOccuipedException(groupid);
                         }
                         // 移动临时文件为组内数据文件
-                        Files.move(tmpfile.toPath(), pa, REPLACE_EXISTING);
+                        fm.place(tmpfile.toPath(), rootpa, "gro_", groupid);
+                        fm.content.invalidate(ContentCache.key(id, groupid));
                     } else
                         throw new NoDataException(groupid);
                 });
             });
-        });
+            return null;
+        }));
     }
 
     /**
@@ -234,57 +310,88 @@ class Group {
      * @param groupids 要移除的数据列表
      *
      * @throws IOException 文件系统发生错误
+     * @see #removeData(int[])
      */
     public
     void removeData(List<Integer> groupids) throws IOException {
-        lock.tryread(IOException.class, () -> {
+        removeData(groupids.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * 批量移除数据
+     * <p>
+     * 重复的 id 只处理一次，文件按照 id 顺序删除<br/>
+     * 先等待这些数据跨线程的读取释放，在记录锁中只写入墓碑，释放记录锁后再删除文件
+     *
+     * @param groupids 要移除的数据 id
+     *
+     * @throws IOException 文件系统发生错误
+     */
+    public
+    void removeData(int[] groupids) throws IOException {
+        var ids = Arrays.stream(groupids).distinct().sorted().toArray();
+        idLock.drain(ids, IOException.class, () -> lock.tryread(IOException.class, () -> {
             // 组文件夹的路径
             var rootpa = checkGroup(this);
 
-            /* 删除数据并移除记录 */
-            reicLock.trywrite(IOException.class, () -> {
-                // 组内数据记录文件路径
-                var grouppa = rootpa.resolve(Path.of("h" + getId() + "_re"));
-                // 记录转移用临时文件
-                var grouppapatmp =
-                        fm.putTemp(getId(), new ByteArrayInputStream(new byte[0])).toPath();
-
-                /* 修改记录 */
-                String s;
-                int nowi;
-                try ( BufferedWriter grouppastream = Files.newBufferedWriter(grouppapatmp, UTF_8, WRITE, TRUNCATE_EXISTING);
-                      BufferedReader groupparead = Files.newBufferedReader(grouppa, UTF_8)
-                ) {
-                    /* 逐行对比记录 */
-                    checkid:
-                    while( (s = groupparead.readLine()) != null ){
-                        // 空行不处理
-                        if ("".equals(s = s.trim()))
-                            continue;
-                        // 转换为数值
-                        nowi = Integer.parseInt(s);
-
-                        // 对比所有要删除的 id
-                        for ( Integer groupid : groupids ){
-                            // 不记录
-                            if (nowi == groupid)
-                                continue checkid;
-                        }
-                        /* 记录不需要删除的数据 */
-                        grouppastream.write(s);
-                        grouppastream.newLine();
-                    }
+            // 写入墓碑
+            var batch = reicLock.trywrite(IOException.class, () -> {
+                for ( int groupid : ids )
+                    index.remove(groupid);
+                return commit.join();
+            });
 
-                    // 覆盖数据记录
-                    grouppastream.flush();
-                    Files.move(grouppapatmp, grouppa, REPLACE_EXISTING);
-                }
+            /* 删除文件，组内 id 不会复用，不需要持有记录锁 */
+            for ( int groupid : ids ){
+                idLock.get(groupid).trywrite(IOException.class, () -> {
+                    fm.delete(rootpa, "gro_", groupid);
+                    fm.content.invalidate(ContentCache.key(id, groupid));
+                });
+            }
+            // 等待记录同步
+            commit.await(batch);
+            return null;
+        }));
+        compact();
+    }
 
-                /* 删除文件 */
-                for ( Integer groupid : groupids ){
-                    Files.deleteIfExists(rootpa.resolve(Path.of("gro_" + groupid)));
-                }
-            });
+    /**
+     * 同步记录文件
+     * <p>
+     * 由 {@link GroupCommit} 的同步者调用，不持有记录锁
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void sync() throws IOException {
+        var t = Instrument.start();
+        index.force();
+        Instrument.time(FileManager.M_FSYNC, t);
+    }
+
+    /**
+     * 在后台整理数据记录
+     * <p>
+     * 仅在墓碑过多且没有进行中的整理时提交任务
+     */
+    private
+    void compact() {
+        if (!index.needCompact() || !compacting.compareAndSet(false, true))
+            return;
+        Compactor.execute(() -> {
+            try {
+                lock.tryread(IOException.class, () -> {
+                    checkGroup(this);
+                    reicLock.trywrite(IOException.class, () -> {
+                        if (index.needCompact())
+                            index.compact();
+                    });
+                });
+            } catch ( IOException e ) {
+                e.printStackTrace();
+            } finally {
+                compacting.set(false);
+            }
         });
     }
 
@@ -304,8 +411,8 @@ class Group {
      */
     public static
     Group create(int id, FileManager fm, SyLock lock) throws Exception {
-        keepGroupPath(fm.Dirpath, id);
-        return new Group(id, fm, lock);
+        keepGroupPath(fm.resolve(fm.Dirpath, "da_", id), id);
+        return open(id, fm, lock);
     }
 
     /**
@@ -321,11 +428,79 @@ class Group {
      */
     public static
     Group get(int id, FileManager fm, SyLock lock) throws IOException {
+        // 检查是否还有组空间
+        if (!Files.isDirectory(fm.resolve(fm.Dirpath, "da_", id)))
+            throw new IOException("group is remove!");
+        return open(id, fm, lock);
+    }
+
+    /**
+     * 打开组记录并构造组对象
+     *
+     * @param id   组数据的 id
+     * @param fm   文件管理器
+     * @param lock 锁对象
+     *
+     * @return 组对象
+     *
+     * @throws IOException 文件系统错误
+     */
+    private static
+    Group open(int id, FileManager fm, SyLock lock) throws IOException {
         var g = new Group(id, fm, lock);
-        Group.checkGroup(g);
+        g.reopen();
         return g;
     }
 
+    /**
+     * 在当前布局的位置重新打开组记录
+     * <p>
+     * 迁移目录布局移动组空间后调用，需在持有组的写锁时调用<br/>
+     * 组内 id 从记录的预留位置继续分配，不会复用已分配的 id
+     *
+     * @throws IOException 文件系统错误
+     */
+    void relocate() throws IOException { reopen(); }
+
+    /**
+     * 打开组记录
+     * <p>
+     * 已有的记录会在新的记录打开后关闭，释放其映射区
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void reopen() throws IOException {
+        // 组文件夹的路径
+        var rootpa = fm.resolve(fm.Dirpath, "da_", id);
+        // 记录文件夹被占用
+        var indexpa = rootpa.resolve(Path.of("h" + id + "_ix"));
+        if (Files.isDirectory(indexpa))
+            Files.delete(indexpa);
+
+        var index = GroupIndex.open(indexpa, rootpa.resolve(Path.of("h" + id + "_re")));
+        /* 磁盘上最大的数据 id */
+        var diskMax = new int[1];
+        fm.scan(rootpa, "gro_", p -> {
+            var i = FileManager.parseId(p, "gro_");
+            if (i != null)
+                diskMax[0] = Math.max(diskMax[0], i);
+        });
+
+        IdAllocator ids;
+        try {
+            ids = IdAllocator.open(rootpa.resolve(Path.of("h" + id + "_id")), diskMax[0], index.maxId());
+        } catch ( IOException e ) {
+            index.close();
+            throw e;
+        }
+        var old = this.index;
+        this.index = index;
+        this.ids = ids;
+        if (old != null)
+            old.close();
+    }
+
     /**
      * 移除组数据，并释放文件管理器中的缓存
      *
@@ -337,14 +512,28 @@ class Group {
             // 组文件夹的路径
             var rootpa = checkGroup(this);
 
-            Files.list(rootpa).forEach(p -> {
-                try {
-                    Files.delete(p);
-                } catch ( IOException e ) {
-                    e.printStackTrace();
+            // 移除组空间，使已取得的组对象失效
+            Files.walkFileTree(rootpa, new SimpleFileVisitor<>() {
+                @Override
+                public
+                FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    try {
+                        Files.delete(file);
+                    } catch ( IOException e ) {
+                        e.printStackTrace();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public
+                FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
                 }
             });
             // 移除缓存
+            fm.content.invalidateGroup(id);
             fm.removeGroup(id);
         });
     }
@@ -363,7 +552,7 @@ class Group {
     private static
     Path checkGroup(Group group) throws IOException {
         // 组文件夹的路径
-        var rootpa = group.getDirpath().resolve(Path.of("da_" + group.getId()));
+        var rootpa = group.fm.resolve(group.getDirpath(), "da_", group.getId());
         // 检查是否还有组空间
         if (!Files.isDirectory(rootpa)) {
             throw new IOException("group is remove!");
@@ -371,22 +560,70 @@ class Group {
         return rootpa;
     }
 
+    /**
+     * 检查组内数据并获取路径
+     *
+     * @param rootpa 组空间路径
+     * @param ids    数据的 id
+     *
+     * @return 数据路径
+     *
+     * @throws DataOccuipedException 数据空间被占用
+     * @throws NoDataException       数据不存在
+     */
+    private
+    Path checkData(Path rootpa, int ids) throws Exception {
+        // 生成当前数据路径
+        Path dapa = fm.resolve(rootpa, "gro_", ids);
+
+        /* 检查数据是否可用 */
+        if (Files.exists(dapa)) {
+            // 数据被占用
+            if (Files.isDirectory(dapa)) {
+                throw new DataOccuipedException(ids);
+            }
+            return dapa;
+        }
+        throw new NoDataException(ids);
+    }
+
+    /**
+     * 持有组与数据的读取
+     *
+     * @param data 数据的锁
+     */
+    private
+    void pin(StripedLock.Slot data) {
+        if (lock instanceof StripedLock.Slot)
+            ((StripedLock.Slot) lock).pin();
+        data.pin();
+    }
+
+    /**
+     * 释放 {@link #pin(StripedLock.Slot)} 持有的读取
+     *
+     * @param data 数据的锁
+     */
+    private
+    void unpin(StripedLock.Slot data) {
+        data.unpin();
+        if (lock instanceof StripedLock.Slot)
+            ((StripedLock.Slot) lock).unpin();
+    }
+
     /**
      * 保持组内容空间完整性
      *
-     * @param pa 组空间路径
-     * @param id 组 id
+     * @param rootpa 组空间路径
+     * @param id     组 id
      *
      * @throws IOException           文件系统错误
      * @throws DataOccuipedException 数据位置被占用
      */
     private static
-    void keepGroupPath(Path pa, int id) throws Exception {
-        // 组文件夹的路径
-        var rootpa = pa.resolve(Path.of("da_" + id));
-
+    void keepGroupPath(Path rootpa, int id) throws Exception {
         /* 初始化文件夹 */
-        if (Files.isExecutable(rootpa) && !Files.isDirectory(rootpa)) {
+        if (Files.exists(rootpa) && !Files.isDirectory(rootpa)) {
             throw new DataOccuipedException(id);
         } else {
             Files.createDirectories(rootpa);
@@ -395,11 +632,6 @@ class Group {
         // 组内 id 的记录文件路径
         var idpa = rootpa.resolve(Path.of("h" + id + "_id"));
         createGroupRecord(idpa, "0");
-
-        // 组内数据记录文件路径
-        var grouppa = rootpa.resolve(Path.of("h" + id + "_re"));
-        // 初始化记录文件
-        createGroupRecord(grouppa, "");
     }
 
     /**
@@ -413,7 +645,7 @@ class Group {
     private static
     void createGroupRecord(Path pa, String initda) throws IOException {
         // 检查文件存在
-        if (Files.isExecutable(pa)) {
+        if (Files.exists(pa)) {
             // 移除文件夹并重置为文件
             if (Files.isDirectory(pa)) {
                 Files.delete(pa);
@@ -424,6 +656,6 @@ class Group {
 
         // 初始化数据
         if (Files.size(pa) == 0)
-            Files.writeString(pa, initda, UTF_8);
+            FileManager.writeString(pa, initda);
     }
 }
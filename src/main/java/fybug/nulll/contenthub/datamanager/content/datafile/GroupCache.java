@@ -0,0 +1,199 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
+
+/**
+ * <h2>组对象缓存.</h2>
+ * <p>
+ * 使用 {@link ConcurrentHashMap} 保存组对象，命中时只更新访问时间，不需要加锁<br/>
+ * 数量超出容量一定比例后，按照访问时间一次淘汰最久未使用的组对象，直到回到容量以内
+ * <p>
+ * 淘汰的组对象如果仍被外部持有，会通过弱引用找回，保证同一个组在同一时间只有一个组对象，
+ * 避免两个组对象同时修改同一份记录
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see FileManager
+ */
+final
+class GroupCache {
+    /** 缓存 */
+    private final Map<Integer, Entry> map = new ConcurrentHashMap<>();
+    /** 所有存活的组对象 */
+    private final Map<Integer, GroupRef> alive = new ConcurrentHashMap<>();
+    /** 已回收的组对象 */
+    private final ReferenceQueue<Group> queue = new ReferenceQueue<>();
+    /** 缓存容量 */
+    private volatile int capacity;
+
+    /** 命中次数 */
+    private final LongAdder hits = new LongAdder();
+    /** 未命中次数 */
+    private final LongAdder misses = new LongAdder();
+    /** 淘汰次数 */
+    private final LongAdder evictions = new LongAdder();
+
+    /** @param capacity 缓存容量 */
+    GroupCache(int capacity) { this.capacity = Math.max(1, capacity); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>缓存条目.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class Entry {
+        /** 组对象 */
+        final Group group;
+        /** 最后访问时间 */
+        volatile long access = System.nanoTime();
+
+        Entry(Group group) { this.group = group; }
+    }
+
+    /**
+     * <h2>组对象弱引用.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class GroupRef extends WeakReference<Group> {
+        /** 组 id */
+        final int id;
+
+        GroupRef(Group group, ReferenceQueue<Group> queue) {
+            super(group, queue);
+            id = group.getId();
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取缓存的组对象
+     * <p>
+     * 不加锁，会记录命中与未命中
+     *
+     * @param id 组 id
+     *
+     * @return 组对象，未命中为 {@code null}
+     */
+    Group get(int id) {
+        var e = map.get(id);
+        if (e == null) {
+            misses.increment();
+            Instrument.count("cache.group.miss", 1);
+            return null;
+        }
+        e.access = System.nanoTime();
+        hits.increment();
+        Instrument.count("cache.group.hit", 1);
+        return e.group;
+    }
+
+    /**
+     * 找回仍然存活的组对象
+     * <p>
+     * 需在持有组锁时调用，找回的组对象会重新放入缓存
+     *
+     * @param id 组 id
+     *
+     * @return 组对象，不存在为 {@code null}
+     */
+    Group revive(int id) {
+        var e = map.get(id);
+        if (e != null)
+            return e.group;
+
+        var ref = alive.get(id);
+        var g = ref == null ? null : ref.get();
+        if (g != null)
+            put(g);
+        return g;
+    }
+
+    /**
+     * 放入组对象
+     * <p>
+     * 需在持有组锁时调用
+     *
+     * @param group 组对象
+     */
+    void put(Group group) {
+        expunge();
+        map.put(group.getId(), new Entry(group));
+        alive.put(group.getId(), new GroupRef(group, queue));
+
+        // 超出容量的八分之一后整理
+        var cap = capacity;
+        if (map.size() > cap + Math.max(1, cap >> 3))
+            evict();
+    }
+
+    /**
+     * 移除组对象
+     *
+     * @param id 组 id
+     */
+    void remove(int id) {
+        map.remove(id);
+        alive.remove(id);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 设置缓存容量
+     *
+     * @param capacity 缓存容量
+     */
+    void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        if (map.size() > this.capacity)
+            evict();
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @return 统计数据
+     */
+    CacheStats stats() { return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), map.size(), 0, 0); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 淘汰最久未使用的组对象直到回到容量以内 */
+    private synchronized
+    void evict() {
+        var over = map.size() - capacity;
+        if (over <= 0)
+            return;
+
+        var list = new ArrayList<>(map.entrySet());
+        list.sort(Comparator.comparingLong(e -> e.getValue().access));
+        for ( int i = 0; i < over && i < list.size(); i++ ){
+            var e = list.get(i);
+            if (map.remove(e.getKey(), e.getValue()))
+                evictions.increment();
+        }
+    }
+
+    /** 清理已回收的组对象记录 */
+    private
+    void expunge() {
+        GroupRef ref;
+        while( (ref = (GroupRef) queue.poll()) != null )
+            alive.remove(ref.id, ref);
+    }
+}
@@ -0,0 +1,144 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+
+import fybug.nulll.contenthub.datamanager.DataManager;
+import fybug.nulll.pdconcurrent.fun.tryRunnable;
+
+/**
+ * <h2>组提交.</h2>
+ * <p>
+ * 合并多个写入者的同步操作，同一批次内的写入只进行一次同步<br/>
+ * 写入者在持有记录锁时完成写入并通过 {@link #join()} 加入当前批次，释放记录锁后使用 {@link #await(Batch)} 等待批次同步完成
+ * <p>
+ * 第一个等待的写入者会成为该批次的同步者，同步前最多等待 {@link DataManager#getCommitDelay()} 让更多写入者加入，
+ * 同步期间到达的写入者会进入下一批次<br/>
+ * {@link #await(Batch)} 只会在所属批次同步完成后返回，所以持久性与逐个同步相同
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see Group
+ */
+final
+class GroupCommit {
+    /** 同步操作 */
+    private final tryRunnable<IOException> syncer;
+    /** 正在收集写入的批次 */
+    private Batch current = new Batch();
+    /** 是否有同步者 */
+    private boolean syncing = false;
+
+    /** @param syncer 同步操作 */
+    GroupCommit(tryRunnable<IOException> syncer) { this.syncer = syncer; }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>提交批次.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    static final
+    class Batch {
+        /** 是否完成同步 */
+        private boolean done;
+        /** 同步发生的错误 */
+        private IOException error;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 加入当前批次
+     * <p>
+     * 需在写入完成后调用
+     *
+     * @return 所属的批次
+     */
+    synchronized
+    Batch join() { return current; }
+
+    /**
+     * 等待批次同步完成
+     * <p>
+     * 等待过程不会被中断，中断标志会在返回时恢复
+     *
+     * @param batch 所属的批次
+     *
+     * @throws IOException 同步失败
+     */
+    void await(Batch batch) throws IOException {
+        var interrupted = false;
+        var leader = false;
+
+        synchronized ( this ){
+            while( !batch.done ){
+                // 成为同步者
+                if (!syncing) {
+                    syncing = true;
+                    leader = true;
+                    break;
+                }
+                try {
+                    wait();
+                } catch ( InterruptedException e ) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (leader)
+            interrupted |= sync();
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        // 检查同步结果
+        if (batch.error != null)
+            throw new IOException("group commit failed", batch.error);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 同步当前批次
+     *
+     * @return 等待期间是否被中断
+     */
+    private
+    boolean sync() {
+        var interrupted = false;
+
+        /* 等待更多写入者加入 */
+        var delay = DataManager.getCommitDelay();
+        if (!delay.isZero()) {
+            try {
+                Thread.sleep(delay.toMillis(), delay.toNanosPart() % 1_000_000);
+            } catch ( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+
+        Batch batch;
+        synchronized ( this ){
+            batch = current;
+            current = new Batch();
+        }
+
+        IOException error = null;
+        try {
+            syncer.run();
+        } catch ( IOException e ) {
+            error = e;
+        } catch ( RuntimeException e ) {
+            error = new IOException(e);
+        }
+
+        synchronized ( this ){
+            batch.error = error;
+            batch.done = true;
+            syncing = false;
+            notifyAll();
+        }
+        return interrupted;
+    }
+}
@@ -0,0 +1,352 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import fybug.nulll.contenthub.datamanager.index.IntLongMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <h2>组数据记录索引.</h2>
+ * <p>
+ * 使用内存映射的二进制文件记录组内的数据 id，文件由 {@value #HEADER} 字节的头部与定长的 int 槽组成<br/>
+ * 槽内的 id 按照写入顺序递增，移除的 id 会以其负数作为墓碑留在原位，所以移除不需要重写文件，
+ * 列取时顺序扫描映射区即可<br/>
+ * 内存中另外保存有效记录的 id 到槽的映射，打开时扫描一次建立，移除与查询直接定位槽，不需要在映射区中查找
+ * <p>
+ * 墓碑过多时 {@link #needCompact()} 返回 {@code true}，由 {@link #compact()} 重写文件回收空间<br/>
+ * 本对象不处理并发，由 {@link Group} 的记录文件锁保护，只有 {@link #force()} 可以不持有锁调用
+ * <p>
+ * 扩展、重写或关闭时会立即释放原有的映射区，不等待 GC ，重写后原文件占用的空间可以马上回收<br/>
+ * 释放映射区与 {@link #force()} 互斥，运行时不支持释放时交给 GC 处理
+ * <p>
+ * 从旧的文本记录导入后，旧记录会改名为 {@code .bak} 保留，直到新的索引第一次通过 {@link #force()} 同步后才删除
+ *
+ * @author fybug
+ * @version 0.0.5
+ * @see Group
+ */
+final
+class GroupIndex {
+    /** 文件标识 */
+    private static final int MAGIC = 0x43484749;
+    /** 头部长度 */
+    private static final int HEADER = 16;
+    /** 初始槽数量 */
+    private static final int INIT_SLOTS = 64;
+    /** 触发整理的最少墓碑数 */
+    private static final int COMPACT_MIN = 64;
+    /** 释放映射区的 {@code Unsafe} 对象，不可用时为 {@code null} */
+    private static final Object UNSAFE;
+    /** {@code Unsafe.invokeCleaner(ByteBuffer)} */
+    private static final Method CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method cleaner = null;
+        try {
+            var c = Class.forName("sun.misc.Unsafe");
+            var f = c.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+            cleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch ( ReflectiveOperationException | RuntimeException e ) {
+            unsafe = null;
+            cleaner = null;
+        }
+        UNSAFE = unsafe;
+        CLEANER = cleaner;
+    }
+
+    /** 索引文件路径 */
+    private final Path path;
+    /** 当前映射区 */
+    private volatile MappedByteBuffer buffer;
+    /** 已使用的槽数 */
+    private int size;
+    /** 墓碑数 */
+    private int removed;
+    /** 有效记录的 id -> 槽 */
+    private final IntLongMap slots = new IntLongMap();
+    /** 等待同步后删除的旧记录备份，没有为 {@code null} */
+    private Path backup;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    private
+    GroupIndex(Path path) { this.path = path; }
+
+    /**
+     * 打开索引文件
+     * <p>
+     * 索引文件不存在时创建，如果存在旧的文本记录文件则将其导入后改名为 {@code .bak} ，在第一次同步后删除
+     *
+     * @param path   索引文件路径
+     * @param legacy 旧的文本记录文件路径
+     *
+     * @return 索引对象
+     *
+     * @throws IOException 文件系统错误 | 索引文件损坏
+     */
+    static
+    GroupIndex open(Path path, Path legacy) throws IOException {
+        var index = new GroupIndex(path);
+
+        if (!Files.isRegularFile(path)) {
+            /* 导入旧记录 */
+            int[] ids = new int[0];
+            if (Files.isRegularFile(legacy)) {
+                ids = Files.readAllLines(legacy, UTF_8)
+                           .stream()
+                           .map(String::trim)
+                           .filter(s -> !s.isEmpty())
+                           .mapToInt(Integer::parseInt)
+                           .sorted()
+                           .toArray();
+            }
+            index.rewrite(ids, ids.length);
+        } else {
+            index.map(Files.size(path));
+            var buff = index.buffer;
+            if (buff.capacity() < HEADER || buff.getInt(0) != MAGIC)
+                throw new IOException("group index " + path + " is broken");
+            index.size = buff.getInt(4);
+            index.removed = buff.getInt(8);
+            // 去除写入未完成的槽
+            while( index.size > 0 && buff.getInt(slot(index.size - 1)) == 0 )
+                index.size--;
+            index.indexSlots();
+        }
+
+        /* 已导入的旧记录保留到新的索引同步之后 */
+        var bak = legacy.resolveSibling(legacy.getFileName() + ".bak");
+        if (Files.isRegularFile(legacy))
+            FileManager.move(legacy, bak, REPLACE_EXISTING, ATOMIC_MOVE);
+        if (Files.isRegularFile(bak))
+            index.backup = bak;
+        return index;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 追加记录
+     *
+     * @param id 数据 id ，必须大于已有的所有 id
+     *
+     * @throws IOException 文件系统错误
+     */
+    void append(int id) throws IOException {
+        if (id <= 0 || (size > 0 && id <= Math.abs(buffer.getInt(slot(size - 1)))))
+            throw new IOException("id: " + id + " is out of order");
+        if (slot(size + 1) > buffer.capacity())
+            map(Math.max(slot(INIT_SLOTS), (long) buffer.capacity() * 2));
+
+        buffer.putInt(slot(size), id);
+        slots.put(id, size);
+        buffer.putInt(4, ++size);
+    }
+
+    /**
+     * 移除记录
+     * <p>
+     * 通过内存中的映射定位槽后写入墓碑
+     *
+     * @param id 数据 id
+     *
+     * @return 是否存在该记录
+     */
+    boolean remove(int id) {
+        var i = (int) slots.remove(id, -1);
+        if (i < 0)
+            return false;
+        buffer.putInt(slot(i), -id);
+        buffer.putInt(8, ++removed);
+        return true;
+    }
+
+    /**
+     * 是否有该记录
+     *
+     * @param id 数据 id
+     *
+     * @return 是否存在
+     */
+    boolean contains(int id) { return slots.containsKey(id); }
+
+    /**
+     * 顺序扫描所有记录
+     *
+     * @param v 接收 id 的接口
+     */
+    void forEach(IntConsumer v) {
+        var buff = buffer;
+        int i;
+        for ( int s = 0; s < size; s++ ){
+            // 跳过墓碑
+            if ((i = buff.getInt(slot(s))) > 0)
+                v.accept(i);
+        }
+    }
+
+    /** 当前记录的数量 */
+    int count() { return size - removed; }
+
+    /** 当前最大的 id ，没有记录时为 {@code 0} */
+    int maxId() { return size == 0 ? 0 : Math.abs(buffer.getInt(slot(size - 1))); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 将映射区写入磁盘
+     * <p>
+     * 可以与写入操作同时进行，已关闭时不进行操作<br/>
+     * 第一次同步后删除导入时保留的旧记录
+     *
+     * @throws IOException 文件系统错误
+     */
+    synchronized
+    void force() throws IOException {
+        if (buffer == null)
+            return;
+        buffer.force();
+        if (backup != null) {
+            Files.deleteIfExists(backup);
+            backup = null;
+        }
+    }
+
+    /**
+     * 关闭索引
+     * <p>
+     * 将映射区写入磁盘后释放，之后不能再使用该对象
+     */
+    synchronized
+    void close() {
+        var old = buffer;
+        if (old == null)
+            return;
+        old.force();
+        buffer = null;
+        unmap(old);
+    }
+
+    /** 是否需要整理 */
+    boolean needCompact() { return removed >= COMPACT_MIN && removed * 2 >= size; }
+
+    /**
+     * 整理索引
+     * <p>
+     * 将有效记录写入新的文件后替换原文件，并重新映射
+     *
+     * @throws IOException 文件系统错误
+     */
+    void compact() throws IOException {
+        var ids = new int[count()];
+        var n = new int[1];
+        forEach(i -> ids[n[0]++] = i);
+        rewrite(ids, n[0]);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 使用给定的记录重写索引文件
+     *
+     * @param ids 记录
+     * @param len 记录数量
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void rewrite(int[] ids, int len) throws IOException {
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        var cap = Math.max(INIT_SLOTS, Integer.highestOneBit(Math.max(1, len)) * 2);
+
+        var buff = ByteBuffer.allocate(slot(cap));
+        buff.putInt(MAGIC).putInt(len).putInt(0).putInt(0);
+        buff.asIntBuffer().put(Arrays.copyOf(ids, len));
+        buff.rewind();
+
+        /* 写入并同步新文件 */
+        try ( var ch = FileChannel.open(tmp, WRITE, CREATE, TRUNCATE_EXISTING) ) {
+            while( buff.hasRemaining() )
+                ch.write(buff);
+            ch.force(true);
+        }
+        FileManager.move(tmp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+
+        map(slot(cap));
+        size = len;
+        removed = 0;
+        indexSlots();
+    }
+
+    /** 扫描映射区重建 id 到槽的映射 */
+    private
+    void indexSlots() {
+        slots.clear();
+        var buff = buffer;
+        int i;
+        for ( int s = 0; s < size; s++ ){
+            if ((i = buff.getInt(slot(s))) > 0)
+                slots.put(i, s);
+        }
+    }
+
+    /**
+     * 映射索引文件
+     *
+     * @param length 映射长度，超过文件长度时会扩展文件
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void map(long length) throws IOException {
+        MappedByteBuffer now;
+        try ( var ch = FileChannel.open(path, READ, WRITE) ) {
+            now = ch.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+        synchronized ( this ){
+            var old = buffer;
+            buffer = now;
+            if (old != null)
+                unmap(old);
+        }
+    }
+
+    /**
+     * 释放映射区
+     * <p>
+     * 释放后不能再访问该映射区，调用者需保证没有其他线程在使用
+     *
+     * @param buff 映射区
+     */
+    private static
+    void unmap(MappedByteBuffer buff) {
+        if (CLEANER == null)
+            return;
+        try {
+            CLEANER.invoke(UNSAFE, buff);
+        } catch ( ReflectiveOperationException e ) {
+            // 交给 GC 释放
+        }
+    }
+
+    /** 槽在文件中的偏移 */
+    private static
+    int slot(int i) { return HEADER + i * Integer.BYTES; }
+}
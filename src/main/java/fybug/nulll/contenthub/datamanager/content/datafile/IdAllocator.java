@@ -0,0 +1,111 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fybug.nulll.contenthub.datamanager.DataManager;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.DSYNC;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <h2>组内 id 分配器.</h2>
+ * <p>
+ * 组打开后 id 计数保存在内存中，分配时不需要读取 {@code h{ id }_id} 文件<br/>
+ * 记录文件中保存的是已预留的最大 id ，分配超出预留范围时一次预留 {@link DataManager#getIdReserve()} 个 id 并同步写入，
+ * 所以已分配的 id 在崩溃后也不会被再次分配
+ * <p>
+ * 打开时使用记录文件、组内数据记录与磁盘上的 {@code gro_*} 文件中最大的 id 作为起点，记录文件丢失或损坏时只使用后两者
+ *
+ * @author fybug
+ * @version 0.0.3
+ * @see Group
+ */
+final
+class IdAllocator {
+    /** 记录文件路径 */
+    private final Path path;
+    /** 最后分配的 id */
+    private final AtomicInteger last;
+    /** 已预留的最大 id */
+    private volatile int reserved;
+
+    /**
+     * @param path  记录文件路径
+     * @param start 起始 id
+     */
+    private
+    IdAllocator(Path path, int start) {
+        this.path = path;
+        last = new AtomicInteger(start);
+        reserved = start;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 打开分配器并校对计数
+     *
+     * @param path     记录文件路径
+     * @param diskMax  磁盘上 {@code gro_*} 文件中最大的 id
+     * @param indexMax 组内数据记录中最大的 id
+     *
+     * @return 分配器
+     *
+     * @throws IOException 文件系统错误
+     */
+    static
+    IdAllocator open(Path path, int diskMax, int indexMax) throws IOException {
+        // 已预留的 id
+        int start;
+        try {
+            start = Integer.parseInt(Files.readString(path).trim());
+        } catch ( NumberFormatException | NoSuchFileException e ) {
+            // 记录丢失或损坏，以磁盘与组记录为准
+            start = 0;
+        }
+        // 校对磁盘上的数据
+        start = Math.max(start, Math.max(diskMax, indexMax));
+
+        return new IdAllocator(path, start);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 分配连续的 id
+     *
+     * @param n 数量
+     *
+     * @return 第一个 id
+     *
+     * @throws IOException 无法写入预留记录
+     */
+    int next(int n) throws IOException {
+        var first = last.getAndAdd(n) + 1;
+        var end = first + n - 1;
+        if (end > reserved)
+            reserve(end);
+        return first;
+    }
+
+    /**
+     * 预留 id
+     *
+     * @param upto 需要预留到的 id
+     *
+     * @throws IOException 无法写入预留记录
+     */
+    private synchronized
+    void reserve(int upto) throws IOException {
+        if (upto <= reserved)
+            return;
+        var hwm = upto + DataManager.getIdReserve();
+        FileManager.writeString(path, String.valueOf(hwm), WRITE, CREATE, TRUNCATE_EXISTING, DSYNC);
+        reserved = hwm;
+    }
+}
@@ -0,0 +1,95 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * <h2>数据映射缓存.</h2>
+ * <p>
+ * 将小于阈值的数据文件只读映射到内存中并保留映射，重复读取时直接返回映射的只读视图，不需要再次读取磁盘<br/>
+ * 保留的映射总大小不超过预算，超出时淘汰最久未使用的映射，映射保存在 {@link BufferCache} 中，命中时不加锁
+ * <p>
+ * 数据文件只会被整体替换或删除，不会原地修改，所以已返回的视图在淘汰或失效后仍然可以安全读取，内容为替换前的数据<br/>
+ * 映射的释放由 GC 完成，淘汰只会放弃对映射的引用
+ *
+ * @author fybug
+ * @version 0.0.3
+ * @see FileManager#mapData(int)
+ */
+final
+class MappedDataCache {
+    /** 映射 */
+    private final BufferCache cache = new BufferCache("mapped");
+    /** 可映射的最大文件大小，{@code 0} 为关闭 */
+    private volatile int threshold = 0;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 设置映射条件
+     *
+     * @param threshold 可映射的最大文件大小，小于等于 {@code 0} 为关闭并清空映射
+     * @param budget    映射总大小的预算
+     */
+    synchronized
+    void configure(int threshold, long budget) {
+        this.threshold = Math.max(0, threshold);
+        cache.setCapacity(this.threshold == 0 ? 0 : budget);
+    }
+
+    /**
+     * 获取数据的映射
+     * <p>
+     * 需在持有数据的读锁时调用，映射文件时不持有缓存的锁
+     *
+     * @param id 数据 id
+     * @param pa 数据路径
+     *
+     * @return 映射的只读视图，关闭或文件超出阈值时为 {@code null}
+     *
+     * @throws IOException 无法映射文件
+     */
+    ByteBuffer get(int id, Path pa) throws IOException {
+        if (threshold == 0)
+            return null;
+
+        var hit = cache.get(id);
+        if (hit != null)
+            return hit.asReadOnlyBuffer();
+
+        /* 映射文件 */
+        MappedByteBuffer buff;
+        try ( var ch = FileChannel.open(pa, READ) ) {
+            var size = ch.size();
+            if (size > threshold)
+                return null;
+            buff = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        // 超出预算的映射不保留
+        cache.put(id, buff);
+        return buff.asReadOnlyBuffer();
+    }
+
+    /**
+     * 使映射失效
+     * <p>
+     * 需在持有数据的写锁时调用
+     *
+     * @param id 数据 id
+     */
+    void invalidate(int id) {
+        if (threshold != 0)
+            cache.remove(id);
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @return 统计数据，{@link CacheStats#getBytes()} 为当前映射的总大小
+     */
+    CacheStats stats() { return cache.stats(); }
+}
@@ -0,0 +1,64 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * <h2>文件区间读取通道.</h2>
+ * <p>
+ * 只读取文件中的一段，使用定位读取，不修改文件通道的位置<br/>
+ * 关闭时关闭文件通道
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see FileManager#getData(int, long, long)
+ */
+final
+class RangeChannel implements ReadableByteChannel {
+    /** 文件通道 */
+    private final FileChannel file;
+    /** 当前位置 */
+    private long pos;
+    /** 结束位置，不包含 */
+    private final long end;
+
+    /**
+     * @param file   文件通道
+     * @param from   开始的位置
+     * @param length 读取的长度
+     */
+    RangeChannel(FileChannel file, long from, long length) {
+        this.file = file;
+        pos = from;
+        end = from + length;
+    }
+
+    @Override
+    public
+    int read(ByteBuffer dst) throws IOException {
+        if (pos >= end)
+            return -1;
+
+        var lim = dst.limit();
+        // 限制在区间内
+        if (dst.remaining() > end - pos)
+            dst.limit(dst.position() + (int) (end - pos));
+        try {
+            var n = file.read(dst, pos);
+            if (n > 0)
+                pos += n;
+            return n;
+        } finally {
+            dst.limit(lim);
+        }
+    }
+
+    @Override
+    public
+    boolean isOpen() { return file.isOpen(); }
+
+    @Override
+    public
+    void close() throws IOException { file.close(); }
+}
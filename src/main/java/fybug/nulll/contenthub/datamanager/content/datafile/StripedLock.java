@@ -0,0 +1,476 @@
+package fybug.nulll.contenthub.datamanager.content.datafile;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import fybug.nulll.contenthub.datamanager.index.IntLongMap;
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
+import fybug.nulll.pdconcurrent.SyLock;
+import fybug.nulll.pdconcurrent.fun.trySupplier;
+
+/**
+ * <h2>分段锁表.</h2>
+ * <p>
+ * 使用固定数量的读写锁代替按照 id 创建的锁，id 经过散列后映射到 2 的幂数个锁段上，内存占用不随 id 数量增长<br/>
+ * 不同的 id 可能共用同一个锁段，所以持有锁段时不能再获取同一个表中的其他锁段
+ * <p>
+ * 锁段带有版本号，写锁的最外层获取与释放时各增加一次，奇数表示正在写入，
+ * 可通过 {@link Stripe#tryoptimistic(Class, trySupplier, Consumer)} 在不获取读锁的情况下读取，写入冲突时退回读锁
+ * <p>
+ * {@link #get(int)} 返回绑定 id 的 {@link Slot} ，异步读取使用 {@link Slot#pin()} 跨线程持有该 id 的读取，
+ * 读取按照 id 计数，不影响共用锁段的其他 id<br/>
+ * {@link Slot} 的写入会先阻止该 id 新的跨线程读取并等待已有的读取释放，之后才获取写锁，
+ * 等待期间不持有锁段，锁段上的其他读写不受影响<br/>
+ * 直接使用 {@link Stripe} 的写锁不会等待跨线程的读取，需要时先通过 {@link #drain(int[], Class, trySupplier)} 等待
+ * <p>
+ * 获取锁的等待时间记录为 {@code lock.{名称}.read.wait} 与 {@code lock.{名称}.write.wait} ，写入的等待包括等待跨线程的读取
+ *
+ * @author fybug
+ * @version 0.0.5
+ * @see FileManager
+ * @see Group
+ */
+final
+class StripedLock {
+    /** 锁段 */
+    private final Stripe[] stripes;
+    /** 锁段下标掩码 */
+    private final int mask;
+
+    /**
+     * 使用默认数量构造
+     *
+     * @param name 指标中使用的名称
+     */
+    StripedLock(String name) { this(Runtime.getRuntime().availableProcessors() * 16, name); }
+
+    /**
+     * @param size 锁段数量，会向上取整为 2 的幂
+     * @param name 指标中使用的名称
+     */
+    StripedLock(int size, String name) {
+        size = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        var readWait = "lock." + name + ".read.wait";
+        var writeWait = "lock." + name + ".write.wait";
+        stripes = new Stripe[size];
+        for ( int i = 0; i < size; i++ )
+            stripes[i] = new Stripe(readWait, writeWait);
+        mask = size - 1;
+    }
+
+    /**
+     * 构造单个锁
+     *
+     * @param name 指标中使用的名称
+     *
+     * @return 锁段
+     */
+    static
+    Stripe single(String name) { return new StripedLock(1, name).stripe(0); }
+
+    /**
+     * 获取 id 对应的锁
+     *
+     * @param id 数据 id
+     *
+     * @return 绑定该 id 的锁段
+     */
+    Slot get(int id) { return new Slot(stripes[indexOf(id)], id); }
+
+    /**
+     * 获取 id 对应的锁段下标
+     * <p>
+     * 同时获取多个锁段时需要按照下标从小到大获取，防止死锁
+     *
+     * @param id 数据 id
+     *
+     * @return 锁段下标
+     */
+    int indexOf(int id) {
+        var h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * 按照下标获取锁段
+     *
+     * @param index 锁段下标
+     *
+     * @return 锁段
+     */
+    Stripe stripe(int index) { return stripes[index]; }
+
+    /** 锁段数量 */
+    int size() { return stripes.length; }
+
+    /**
+     * 等待多个 id 的跨线程读取释放后执行
+     * <p>
+     * 执行期间这些 id 新的跨线程读取会等待，执行中获取这些 id 的写锁不会再等待读取
+     *
+     * @param ids    数据 id
+     * @param eClass 异常类型
+     * @param run    执行的操作
+     * @param <T>    返回的数据类型
+     * @param <E>    异常类型
+     *
+     * @return 操作的结果
+     *
+     * @throws E 操作发生错误
+     */
+    <T, E extends Exception> T drain(int[] ids, Class<E> eClass, trySupplier<T, E> run) throws E
+    { return drain(ids, 0, eClass, run); }
+
+    /** 从第 {@code i} 个 id 开始等待 */
+    private
+    <T, E extends Exception> T drain(int[] ids, int i, Class<E> eClass, trySupplier<T, E> run) throws E {
+        if (i == ids.length)
+            return run.get();
+        return get(ids[i]).drain(eClass, () -> drain(ids, i + 1, eClass, run));
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>绑定 id 的锁.</h2>
+     * <p>
+     * 读取直接使用锁段，写入先等待该 id 跨线程的读取释放再获取锁段的写锁
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    static final
+    class Slot implements SyLock {
+        /** 锁段 */
+        private final Stripe stripe;
+        /** 数据 id */
+        private final int id;
+
+        Slot(Stripe stripe, int id) {
+            this.stripe = stripe;
+            this.id = id;
+        }
+
+        @Override
+        public
+        <T> T read(Supplier<T> run) { return stripe.read(run); }
+
+        @Override
+        public
+        <T> T write(Supplier<T> run) { return trywrite(RuntimeException.class, run::get); }
+
+        @Override
+        public
+        <T, E extends Exception> T tryread(Class<E> eClass, trySupplier<T, E> run) throws E
+        { return stripe.tryread(eClass, run); }
+
+        @Override
+        public
+        <T, E extends Exception> T trywrite(Class<E> eClass, trySupplier<T, E> run) throws E {
+            var t = Instrument.start();
+            return drain(eClass, () -> stripe.trywrite(t, eClass, run));
+        }
+
+        /**
+         * 乐观读取
+         *
+         * @see Stripe#tryoptimistic(Class, trySupplier, Consumer)
+         */
+        <T, E extends Exception> T tryoptimistic(Class<E> eClass, trySupplier<T, E> run, Consumer<T> discard)
+        throws E
+        { return stripe.tryoptimistic(eClass, run, discard); }
+
+        /**
+         * 持有读取
+         * <p>
+         * 阻止该 id 的写入，但可以在其他线程中通过 {@link #unpin()} 释放，用于异步传输<br/>
+         * 该 id 有等待中的写入时会先等待写入完成，持有期间当前线程不能写入该 id
+         */
+        void pin() { stripe.pin(id); }
+
+        /** 释放 {@link #pin()} 持有的读取 */
+        void unpin() { stripe.unpin(id); }
+
+        /**
+         * 等待该 id 的跨线程读取释放后执行
+         *
+         * @param eClass 异常类型
+         * @param run    执行的操作
+         * @param <T>    返回的数据类型
+         * @param <E>    异常类型
+         *
+         * @return 操作的结果
+         *
+         * @throws E 操作发生错误
+         * @see StripedLock#drain(int[], Class, trySupplier)
+         */
+        <T, E extends Exception> T drain(Class<E> eClass, trySupplier<T, E> run) throws E
+        { return stripe.drain(id, run); }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>锁段.</h2>
+     * <p>
+     * 可重入的读写锁，附带用于乐观读取的版本号与按照 id 计数的跨线程读取<br/>
+     * 计数使用 {@link IntLongMap} 保存，写入时的等待不需要装箱，只在有线程等待时才唤醒
+     *
+     * @author fybug
+     * @version 0.0.4
+     */
+    static final
+    class Stripe implements SyLock {
+        /** 读写锁 */
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        /** 读锁等待的指标名称 */
+        private final String readWait;
+        /** 写锁等待的指标名称 */
+        private final String writeWait;
+        /** 版本号，只在持有写锁时修改 */
+        private volatile long version = 0;
+        /** id -> 跨线程持有的读取数量，使用自身作为监视器 */
+        private final IntLongMap pins = new IntLongMap();
+        /** id -> 等待中的写入数量，使用自身作为监视器 */
+        private final IntLongMap drains = new IntLongMap();
+        /** 在监视器上等待的线程数量 */
+        private int waiting = 0;
+
+        Stripe(String readWait, String writeWait) {
+            this.readWait = readWait;
+            this.writeWait = writeWait;
+        }
+
+        @Override
+        public
+        <T> T read(Supplier<T> run) {
+            lockRead();
+            try {
+                return run.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public
+        <T> T write(Supplier<T> run) {
+            var outer = lockWrite(Instrument.start());
+            try {
+                return run.get();
+            } finally {
+                unlockWrite(outer);
+            }
+        }
+
+        @Override
+        public
+        <T, E extends Exception> T tryread(Class<E> eClass, trySupplier<T, E> run) throws E {
+            lockRead();
+            try {
+                return run.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public
+        <T, E extends Exception> T trywrite(Class<E> eClass, trySupplier<T, E> run) throws E
+        { return trywrite(Instrument.start(), eClass, run); }
+
+        /**
+         * 在写锁中执行
+         *
+         * @param start 开始等待的时间，来自 {@link Instrument#start()}
+         */
+        private
+        <T, E extends Exception> T trywrite(long start, Class<E> eClass, trySupplier<T, E> run) throws E {
+            var outer = lockWrite(start);
+            try {
+                return run.get();
+            } finally {
+                unlockWrite(outer);
+            }
+        }
+
+        /**
+         * 乐观读取
+         * <p>
+         * 先在不加锁的情况下执行，执行期间没有写入则直接返回结果，否则丢弃结果并在读锁中重新执行<br/>
+         * 读取过程不能修改数据，且需要能够容忍并发写入中的中间状态
+         *
+         * @param eClass  异常类型
+         * @param run     读取操作
+         * @param discard 丢弃结果的处理，如关闭已打开的流
+         * @param <T>     返回的数据类型
+         * @param <E>     异常类型
+         *
+         * @return 读取的结果
+         *
+         * @throws E 读取发生错误
+         */
+        <T, E extends Exception> T tryoptimistic(Class<E> eClass, trySupplier<T, E> run, Consumer<T> discard)
+        throws E
+        {
+            var stamp = version;
+            // 没有进行中的写入
+            if ((stamp & 1) == 0) {
+                try {
+                    var r = run.get();
+                    if (version == stamp)
+                        return r;
+                    discard.accept(r);
+                } catch ( RuntimeException e ) {
+                    if (version == stamp)
+                        throw e;
+                } catch ( Exception e ) {
+                    if (version == stamp)
+                        throw eClass.cast(e);
+                }
+            }
+            return tryread(eClass, run);
+        }
+
+        /**
+         * 持有 id 的读取
+         * <p>
+         * 该 id 有等待中的写入时先等待，不持有锁段
+         *
+         * @param id 数据 id
+         */
+        private synchronized
+        void pin(int id) {
+            var interrupted = false;
+            while( drains.containsKey(id) )
+                interrupted |= await();
+            increase(pins, id);
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        /**
+         * 释放 {@link #pin(int)} 持有的读取
+         *
+         * @param id 数据 id
+         */
+        private synchronized
+        void unpin(int id) {
+            if (decrease(pins, id))
+                wake();
+        }
+
+        /**
+         * 阻止 id 新的跨线程读取，等待已有的读取释放后执行
+         *
+         * @param id  数据 id
+         * @param run 执行的操作
+         */
+        private
+        <T, E extends Exception> T drain(int id, trySupplier<T, E> run) throws E {
+            var interrupted = false;
+            synchronized ( this ){
+                increase(drains, id);
+                while( pins.containsKey(id) )
+                    interrupted |= await();
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+
+            try {
+                return run.get();
+            } finally {
+                synchronized ( this ){
+                    if (decrease(drains, id))
+                        wake();
+                }
+            }
+        }
+
+        /**
+         * 在监视器上等待一次
+         * <p>
+         * 需持有监视器
+         *
+         * @return 是否被中断
+         */
+        private
+        boolean await() {
+            waiting++;
+            try {
+                wait();
+                return false;
+            } catch ( InterruptedException e ) {
+                return true;
+            } finally {
+                waiting--;
+            }
+        }
+
+        /** 唤醒等待的线程，需持有监视器 */
+        private
+        void wake() {
+            if (waiting > 0)
+                notifyAll();
+        }
+
+        /** 增加 id 的计数 */
+        private static
+        void increase(IntLongMap map, int id) { map.put(id, map.get(id, 0) + 1); }
+
+        /**
+         * 减少 id 的计数
+         *
+         * @return 计数是否已归零
+         */
+        private static
+        boolean decrease(IntLongMap map, int id) {
+            var n = map.get(id, 0) - 1;
+            if (n > 0) {
+                map.put(id, n);
+                return false;
+            }
+            map.remove(id, 0);
+            return true;
+        }
+
+        /*----------------------------------------------------------------------------------------*/
+
+        /** 获取读锁 */
+        private
+        void lockRead() {
+            var t = Instrument.start();
+            lock.readLock().lock();
+            Instrument.time(readWait, t);
+        }
+
+        /**
+         * 获取写锁
+         *
+         * @param start 开始等待的时间
+         *
+         * @return 是否为最外层获取
+         */
+        private
+        boolean lockWrite(long start) {
+            lock.writeLock().lock();
+            var outer = lock.getWriteHoldCount() == 1;
+            if (outer)
+                version++;
+            Instrument.time(writeWait, start);
+            return outer;
+        }
+
+        /**
+         * 释放写锁
+         *
+         * @param outer 是否为最外层获取
+         */
+        private
+        void unlockWrite(boolean outer) {
+            if (outer)
+                version++;
+            lock.writeLock().unlock();
+        }
+    }
+}
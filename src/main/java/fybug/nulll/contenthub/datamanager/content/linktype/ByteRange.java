@@ -0,0 +1,113 @@
+package fybug.nulll.contenthub.datamanager.content.linktype;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * <h2>字节区间.</h2>
+ * <p>
+ * 对应 HTTP 的 {@code Range: bytes=...} 请求头，只支持单个区间，
+ * 通过 {@link #parse(String, long)} 根据数据长度解析为确定的区间
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see DataIOofStorage
+ */
+@AllArgsConstructor
+@Data
+public final
+class ByteRange {
+    /** 开始的位置 */
+    private long from;
+    /** 区间长度 */
+    private long length;
+    /** 数据总长度 */
+    private long total;
+
+    /**
+     * 整个数据的区间
+     *
+     * @param total 数据总长度
+     *
+     * @return 区间
+     */
+    public static
+    ByteRange full(long total) { return new ByteRange(0, total, total); }
+
+    /**
+     * 解析区间请求
+     * <p>
+     * 支持 {@code bytes=a-b} 、{@code bytes=a-} 与 {@code bytes=-n} ，结束位置超出数据时截断到末尾<br/>
+     * 格式错误或有多个区间时返回 {@code null} ，按照 HTTP 的规定应当忽略该请求头并返回整个数据
+     *
+     * @param header 请求头的值
+     * @param total  数据总长度
+     *
+     * @return 区间，需要忽略时为 {@code null}
+     *
+     * @throws IllegalArgumentException 区间无法满足，对应 HTTP 416
+     */
+    public static
+    ByteRange parse(String header, long total) {
+        if (header == null)
+            return null;
+        header = header.strip();
+        if (!header.regionMatches(true, 0, "bytes=", 0, 6))
+            return null;
+        var spec = header.substring(6).strip();
+        var dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0)
+            return null;
+
+        long from, to;
+        try {
+            var a = spec.substring(0, dash).strip();
+            var b = spec.substring(dash + 1).strip();
+            if (a.isEmpty()) {
+                /* 末尾的 n 个字节 */
+                if (b.isEmpty())
+                    return null;
+                var n = Long.parseLong(b);
+                if (n < 0)
+                    return null;
+                if (n == 0 || total == 0)
+                    throw unsatisfiable(header, total);
+                from = Math.max(0, total - n);
+                to = total - 1;
+            } else {
+                from = Long.parseLong(a);
+                to = b.isEmpty() ? Long.MAX_VALUE : Long.parseLong(b);
+                if (from < 0 || to < from)
+                    return null;
+                if (from >= total)
+                    throw unsatisfiable(header, total);
+                to = Math.min(to, total - 1);
+            }
+        } catch ( NumberFormatException e ) {
+            return null;
+        }
+        return new ByteRange(from, to - from + 1, total);
+    }
+
+    /** 无法满足的区间 */
+    private static
+    IllegalArgumentException unsatisfiable(String header, long total)
+    { return new IllegalArgumentException("range not satisfiable: " + header + " of " + total); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 结束的位置，包含 */
+    public
+    long to() { return from + length - 1; }
+
+    /** 是否为整个数据 */
+    public
+    boolean isFull() { return from == 0 && length == total; }
+
+    /**
+     * 生成响应头
+     *
+     * @return {@code Content-Range} 的值
+     */
+    public
+    String contentRange() { return "bytes " + from + '-' + to() + '/' + total; }
+}
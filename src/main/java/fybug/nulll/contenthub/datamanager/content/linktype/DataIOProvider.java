@@ -0,0 +1,69 @@
+package fybug.nulll.contenthub.datamanager.content.linktype;
+/**
+ * <h2>数据处理器提供接口.</h2>
+ * <p>
+ * 通过 {@link java.util.ServiceLoader} 注册数据处理器，
+ * 在 {@code META-INF/services/fybug.nulll.contenthub.datamanager.content.linktype.DataIOProvider} 中声明实现类<br/>
+ * {@link LinkTypeManager} 构造时加载所有的提供者，同一个类型的处理器后加载的覆盖先加载的，内置的处理器最先加载
+ * <p>
+ * 类型名称匹配 {@link LinktypeR#getName()} ，为 {@link #DEFAULT} 时作为整个处理类型的默认处理器
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see LinkTypeManager
+ */
+public
+interface DataIOProvider {
+    /** 默认处理器的名称 */
+    String DEFAULT = "default";
+
+    /**
+     * 处理类型
+     *
+     * @return 匹配 {@link LinktypeR#getType()} 的处理类型，如 {@code value} 、{@code storage}
+     */
+    String type();
+
+    /**
+     * 类型名称
+     *
+     * @return 匹配 {@link LinktypeR#getName()} 的类型名称，默认为 {@link #DEFAULT}
+     */
+    default
+    String name() { return DEFAULT; }
+
+    /**
+     * 创建处理器
+     * <p>
+     * 每个 {@link LinkTypeManager} 只会调用一次
+     *
+     * @return 数据处理器
+     */
+    DataIOofType pass();
+
+    /**
+     * 使用已有的处理器构造提供者
+     *
+     * @param type 处理类型
+     * @param name 类型名称
+     * @param pass 数据处理器
+     *
+     * @return 提供者
+     */
+    static
+    DataIOProvider of(String type, String name, DataIOofType pass) {
+        return new DataIOProvider() {
+            @Override
+            public
+            String type() { return type; }
+
+            @Override
+            public
+            String name() { return name; }
+
+            @Override
+            public
+            DataIOofType pass() { return pass; }
+        };
+    }
+}
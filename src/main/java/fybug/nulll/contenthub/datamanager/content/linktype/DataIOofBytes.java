@@ -0,0 +1,129 @@
+package fybug.nulll.contenthub.datamanager.content.linktype;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+
+/**
+ * <h2>字节数据处理接口.</h2>
+ * <p>
+ * 与 {@link DataIOofType} 相同的数据，但以 UTF-8 编码的字节读写，不经过 {@link String} 的转换，
+ * 可以直接写入到响应中<br/>
+ * 通过 {@link LinkTypeManager#getPass(int, Class)} 获取，不支持的处理器获取结果为 {@code null}
+ * <p>
+ * 默认的通道方法通过缓冲区实现，数据较大的处理器应当覆盖为流式读写
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see DataIOofType
+ * @see DataIOofNumber
+ */
+public
+interface DataIOofBytes {
+    /**
+     * 数据读取方法
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     *
+     * @return 数据的字节，不存在为 {@code null}
+     *
+     * @throws IOException 读取错误
+     */
+    ByteBuffer read(DataHub dataHub, int id) throws IOException;
+
+    /**
+     * 数据输入方法
+     * <p>
+     * 读取缓冲区中剩余的内容
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param data    数据的字节，为 {@code null} 时移除数据
+     *
+     * @throws IOException 存储错误
+     */
+    void write(DataHub dataHub, int id, ByteBuffer data) throws IOException;
+
+    /**
+     * 打开数据的读取通道
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     *
+     * @return 读取通道，不存在为 {@code null}
+     *
+     * @throws IOException 读取错误
+     */
+    default
+    ReadableByteChannel open(DataHub dataHub, int id) throws IOException {
+        var data = read(dataHub, id);
+        return data == null ? null : new BufferChannel(data);
+    }
+
+    /**
+     * 从通道输入数据
+     * <p>
+     * 读取到通道结束，不会关闭通道
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param in      数据来源
+     *
+     * @throws IOException 读取或存储错误
+     */
+    default
+    void write(DataHub dataHub, int id, ReadableByteChannel in) throws IOException {
+        var buff = ByteBuffer.allocate(8192);
+        while( in.read(buff) >= 0 ){
+            if (!buff.hasRemaining())
+                buff = ByteBuffer.allocate(buff.capacity() << 1).put(buff.flip());
+        }
+        write(dataHub, id, buff.flip());
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>缓冲区读取通道.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    final
+    class BufferChannel implements ReadableByteChannel {
+        /** 剩余的数据 */
+        private final ByteBuffer data;
+        /** 是否已关闭 */
+        private boolean open = true;
+
+        /** @param data 数据，读取其剩余的内容 */
+        public
+        BufferChannel(ByteBuffer data) { this.data = data.duplicate(); }
+
+        @Override
+        public synchronized
+        int read(ByteBuffer dst) throws IOException {
+            if (!open)
+                throw new ClosedChannelException();
+            if (!data.hasRemaining())
+                return -1;
+
+            var n = Math.min(dst.remaining(), data.remaining());
+            var lim = data.limit();
+            dst.put(data.limit(data.position() + n));
+            data.limit(lim);
+            return n;
+        }
+
+        @Override
+        public synchronized
+        boolean isOpen() { return open; }
+
+        @Override
+        public synchronized
+        void close() { open = false; }
+    }
+}
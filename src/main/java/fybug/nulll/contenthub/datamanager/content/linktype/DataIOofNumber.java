@@ -0,0 +1,78 @@
+package fybug.nulll.contenthub.datamanager.content.linktype;
+import java.io.IOException;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+
+/**
+ * <h2>数字数据处理接口.</h2>
+ * <p>
+ * 以基本类型读写数字，不需要装箱与文本转换
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see DataIOofBytes
+ */
+public
+interface DataIOofNumber extends DataIOofBytes {
+    /**
+     * 读取整数
+     * <p>
+     * 浮点数会截断为整数
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param def     数据不存在时返回的值
+     *
+     * @return 整数
+     *
+     * @throws IOException 读取错误
+     */
+    long readLong(DataHub dataHub, int id, long def) throws IOException;
+
+    /**
+     * 读取浮点数
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param def     数据不存在时返回的值
+     *
+     * @return 浮点数
+     *
+     * @throws IOException 读取错误
+     */
+    double readDouble(DataHub dataHub, int id, double def) throws IOException;
+
+    /**
+     * 数据是否为整数
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     *
+     * @return 保存的是整数
+     *
+     * @throws IOException 读取错误
+     */
+    boolean isLong(DataHub dataHub, int id) throws IOException;
+
+    /**
+     * 存储整数
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param value   整数
+     *
+     * @throws IOException 存储错误
+     */
+    void writeLong(DataHub dataHub, int id, long value) throws IOException;
+
+    /**
+     * 存储浮点数
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param value   浮点数
+     *
+     * @throws IOException 存储错误
+     */
+    void writeDouble(DataHub dataHub, int id, double value) throws IOException;
+}
@@ -0,0 +1,43 @@
+package fybug.nulll.contenthub.datamanager.content.linktype;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+import fybug.nulll.contenthub.datamanager.content.datafile.DataInfo;
+
+/**
+ * <h2>存储数据处理接口.</h2>
+ * <p>
+ * 文件类数据的处理器，除字节读写外可在不读取内容的情况下获取长度与弱校验值，并按照区间读取
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see ByteRange
+ */
+public
+interface DataIOofStorage extends DataIOofBytes {
+    /**
+     * 获取数据信息
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     *
+     * @return 数据长度、修改时间与弱校验值，不存在为 {@code null}
+     *
+     * @throws IOException 读取错误
+     */
+    DataInfo info(DataHub dataHub, int id) throws IOException;
+
+    /**
+     * 打开数据区间的读取通道
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param range   读取的区间
+     *
+     * @return 读取通道，不存在为 {@code null}
+     *
+     * @throws IOException 读取错误
+     */
+    ReadableByteChannel open(DataHub dataHub, int id, ByteRange range) throws IOException;
+}
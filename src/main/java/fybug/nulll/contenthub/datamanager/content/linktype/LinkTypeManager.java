@@ -3,9 +3,14 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
 
+import fybug.nulll.contenthub.datamanager.content.linktype.pass.storage.GroupPass;
+import fybug.nulll.contenthub.datamanager.content.linktype.pass.storage.StoragePass;
 import fybug.nulll.contenthub.datamanager.content.linktype.pass.value.ValuePass;
 import fybug.nulll.contenthub.datamanager.content.linktype.pass.value.Value_NumberPass;
+import fybug.nulll.contenthub.datamanager.index.LinkTypeIndex;
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
 import fybug.nulll.pdcache.PDCache;
 import fybug.nulll.pdcache.supplier.memory.SCache;
 import lombok.AllArgsConstructor;
@@ -14,11 +19,17 @@ import lombok.Data;
 /**
  * <h2>数据类型管理器.</h2>
  * 负责管理数据类型的数据，可获取根据处理类型分类的数据类型列表<br/>
- * 通过 {@link #getPass(int)} 可获取对应的数据存储处理器
+ * 通过 {@link #getPass(int)} 可获取对应的数据存储处理器，
+ * 通过 {@link #getPass(int, Class)} 可获取字节、数字或存储形式的处理器<br/>
+ * 处理器在构造时通过 {@link DataIOProvider} 加载，并按照类型 id 放入数组，获取时直接使用下标<br/>
+ * 通过 {@link #listLinkType(LinkTypeIndex)} 可获取带有各类型内容数量的列表<br/>
+ * 没有处理器的类型计入 {@code linktype.pass.miss} ，处理器读写数据的耗时由各处理器在实际的读写处记录
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.9
  * @see DataIOofType
+ * @see DataIOofBytes
+ * @see DataIOProvider
  */
 public
 class LinkTypeManager {
@@ -27,11 +38,22 @@ class LinkTypeManager {
     private final LinktypeR[] TypeList;
     // 展示用列表缓存
     private final SCache<Map> LinkMapCache;
-    // 数据处理器记录
-    private final Map<String, Map<String, DataIOofType>> passMap;
+    // 数据处理器，下标为类型 id - 1
+    private final DataIOofType[] passList;
 
+    /** 加载内置与 {@link ServiceLoader} 中注册的处理器 */
     public
-    LinkTypeManager() {
+    LinkTypeManager() { this(ServiceLoader.load(DataIOProvider.class)); }
+
+    /**
+     * 使用指定的处理器构造
+     * <p>
+     * 内置的处理器会先加载，可被覆盖
+     *
+     * @param providers 处理器提供者
+     */
+    public
+    LinkTypeManager(Iterable<DataIOProvider> providers) {
         // 静态列表
         TypeList = new LinktypeR[]{
                 /* 值类型 */
@@ -80,8 +102,33 @@ class LinkTypeManager {
         }).build();
 
         // 处理器
-        passMap = Map.of("value", Map.of("default", new ValuePass(), //
-                                         "number", new Value_NumberPass()));
+        var passMap = new HashMap<String, Map<String, DataIOofType>>();
+        register(passMap, DataIOProvider.of("value", DataIOProvider.DEFAULT, new ValuePass()));
+        register(passMap, DataIOProvider.of("value", "number", new Value_NumberPass()));
+        register(passMap, DataIOProvider.of("storage", DataIOProvider.DEFAULT, new StoragePass()));
+        register(passMap, DataIOProvider.of("storage group", DataIOProvider.DEFAULT, new GroupPass()));
+        for ( DataIOProvider p : providers )
+            register(passMap, p);
+
+        passList = new DataIOofType[TypeList.length];
+        for ( int i = 0; i < TypeList.length; i++ ){
+            var map = passMap.get(TypeList[i].getType());
+            if (map != null)
+                passList[i] = map.getOrDefault(TypeList[i].getName(), map.get(DataIOProvider.DEFAULT));
+        }
+    }
+
+    /**
+     * 记录提供的处理器
+     *
+     * @param passMap  处理类型 -> 类型名称 -> 处理器
+     * @param provider 处理器提供者
+     */
+    private static
+    void register(Map<String, Map<String, DataIOofType>> passMap, DataIOProvider provider) {
+        var pass = provider.pass();
+        if (pass != null)
+            passMap.computeIfAbsent(provider.type(), k -> new HashMap<>()).put(provider.name(), pass);
     }
 
     /*--------------------------------------------------------------------------------------------*/
@@ -90,7 +137,7 @@ class LinkTypeManager {
      * <h2>展示用类型对象.</h2>
      *
      * @author fybug
-     * @version 0.0.1
+     * @version 0.0.2
      */
     @AllArgsConstructor
     @Data
@@ -102,6 +149,11 @@ class LinkTypeManager {
         String name;
         /** 类型的描述 */
         String des;
+        /** 该类型的内容数量 */
+        int count;
+
+        public
+        TypeR(int id, String name, String des) { this(id, name, des, 0); }
     }
 
     /**
@@ -112,15 +164,40 @@ class LinkTypeManager {
     public
     Map<String, List<TypeR>> listLinkType() throws Exception { return LinkMapCache.get(); }
 
+    /**
+     * 获取按照处理方式分类的类型列表，并带有各类型的内容数量
+     *
+     * @param usage 处理类型索引
+     *
+     * @return 获取的列表
+     */
+    public
+    Map<String, List<TypeR>> listLinkType(LinkTypeIndex usage) throws Exception {
+        var counts = usage.counts();
+        var map = new HashMap<String, List<TypeR>>();
+        // 复制缓存的记录
+        listLinkType().forEach((k, v) -> {
+            var list = new LinkedList<TypeR>();
+            for ( TypeR r : v )
+                list.add(new TypeR(r.getId(), r.getName(), r.getDes(), counts.getOrDefault(r.getId(), 0)));
+            map.put(k, list);
+        });
+        return map;
+    }
+
     /**
      * 根据 id 获取类型对象
+     * <p>
+     * 类型 id 从 {@code 1} 开始，对应类型列表的下标 {@code id - 1} ，与 {@link #getPass(int)} 相同
      *
      * @param id 类型 id
      *
      * @return 类型对象
+     *
+     * @throws ArrayIndexOutOfBoundsException 没有该类型
      */
     public
-    LinktypeR getLinkType(int id) { return TypeList[id + 1]; }
+    LinktypeR getLinkType(int id) { return TypeList[id - 1]; }
 
     /*-------------------------------------*/
 
@@ -133,12 +210,26 @@ class LinkTypeManager {
      */
     public
     DataIOofType getPass(int id) {
-        var linktype = TypeList[id - 1];
-        if (passMap.containsKey(linktype.getType())) {
-            // 当前大类的处理记录
-            var map = passMap.get(linktype.getType());
-            return map.getOrDefault(linktype.getName(), map.get("default"));
-        }
-        return null;
+        var pass = passList[id - 1];
+        if (pass == null)
+            Instrument.count("linktype.pass.miss", 1);
+        return pass;
+    }
+
+    /**
+     * 获取指定形式的数据处理器
+     * <p>
+     * 如 {@link DataIOofBytes} 与 {@link DataIOofNumber} ，处理器不支持该形式时返回 {@code null}
+     *
+     * @param id   数据处理类型的 id
+     * @param type 处理器的形式
+     * @param <T>  处理器的形式
+     *
+     * @return 数据处理器
+     */
+    public
+    <T> T getPass(int id, Class<T> type) {
+        var pass = getPass(id);
+        return type.isInstance(pass) ? type.cast(pass) : null;
     }
 }
@@ -0,0 +1,33 @@
+package fybug.nulll.contenthub.datamanager.content.linktype.pass.storage;
+import java.nio.ByteBuffer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * <h2>组内数据的读取结果.</h2>
+ * <p>
+ * 读取成功时 {@link #data} 为数据内容，失败时 {@link #error} 为读取的错误，如 {@link
+ * fybug.nulll.contenthub.datamanager.content.datafile.error.NoDataException}
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see GroupPass
+ */
+@AllArgsConstructor
+@Data
+public final
+class GroupMember {
+    /** 在组记录中的位置 */
+    private int index;
+    /** 组内 id */
+    private int id;
+    /** 数据内容 */
+    private ByteBuffer data;
+    /** 读取的错误 */
+    private Exception error;
+
+    /** 是否读取成功 */
+    public
+    boolean isOk() { return error == null; }
+}
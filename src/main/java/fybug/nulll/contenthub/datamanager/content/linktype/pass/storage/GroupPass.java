@@ -0,0 +1,228 @@
+package fybug.nulll.contenthub.datamanager.content.linktype.pass.storage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+import fybug.nulll.contenthub.datamanager.content.datafile.Group;
+import fybug.nulll.contenthub.datamanager.content.linktype.DataIOofType;
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <h2>组类型数据处理.</h2>
+ * <p>
+ * 组数据使用与 {@link StoragePass} 相同的容器目录，数据 id 即为组 id<br/>
+ * 通过 {@link #readMembers(DataHub, int, Consumer)} 并行读取组内数据，读取在共用的固定大小线程池中进行，
+ * 每次调用同时进行的读取不超过 {@link #getParallelism()} 个
+ * <p>
+ * 结果按照组记录的顺序交给回调，前面的数据读取完成后立即交出，不需要等待全部完成<br/>
+ * 单个数据读取失败时结果中带有错误，不影响其他数据
+ * <p>
+ * {@link #passdata(DataHub, int)} 返回以 {@code ,} 分隔的组内 id 列表，
+ * {@link #datato(DataHub, int, String)} 将文本作为新的数据放入组内，为 {@code null} 时移除整个组
+ * <p>
+ * 每次批量读取的耗时记录为 {@code group.fanout} ，读取失败的数据计入 {@code group.fanout.error}
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see Group
+ * @see GroupMember
+ */
+public
+class GroupPass implements DataIOofType {
+    /** 默认的并行数量 */
+    private static final int PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    /** 读取线程的编号 */
+    private static final AtomicInteger ReaderCount = new AtomicInteger();
+    /** 读取组内数据用的线程池 */
+    private static final ExecutorService Readers = Executors.newFixedThreadPool(PARALLELISM, r -> {
+        var t = new Thread(r, "group-reader-" + ReaderCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** 每次调用同时进行的读取数量 */
+    private volatile int parallelism = PARALLELISM;
+
+    @Override
+    public
+    String passdata(DataHub dataHub, int id) {
+        try {
+            var list = new StringBuilder();
+            group(dataHub, id).forEachDataId(i -> {
+                if (list.length() > 0)
+                    list.append(',');
+                list.append(i);
+            });
+            return list.toString();
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public
+    void datato(DataHub dataHub, int id, String data) {
+        try {
+            var fm = StoragePass.files(dataHub);
+            if (data == null) {
+                fm.getGroup(id).remove();
+                return;
+            }
+
+            var tmp = fm.putTemp(id, new ByteArrayInputStream(data.getBytes(UTF_8)));
+            try {
+                fm.createGroup(id).putData(tmp);
+            } catch ( Exception e ) {
+                tmp.delete();
+                throw e;
+            }
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        } catch ( RuntimeException e ) {
+            throw e;
+        } catch ( Exception e ) {
+            throw new UncheckedIOException(new IOException(e));
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 读取组内全部数据
+     * <p>
+     * 按照组记录的顺序交出结果，回调在调用线程中执行
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      组 id
+     * @param out     结果回调
+     *
+     * @return 读取的数据数量
+     *
+     * @throws IOException 组不存在或记录读取错误
+     */
+    public
+    int readMembers(DataHub dataHub, int id, Consumer<GroupMember> out) throws IOException {
+        var group = group(dataHub, id);
+        var ids = IntStream.builder();
+        group.forEachDataId(ids::add);
+        return readMembers(group, ids.build().toArray(), out);
+    }
+
+    /**
+     * 读取组内指定的数据
+     * <p>
+     * 按照传入的顺序交出结果，回调在调用线程中执行
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      组 id
+     * @param members 组内 id
+     * @param out     结果回调
+     *
+     * @return 读取的数据数量
+     *
+     * @throws IOException 组不存在
+     */
+    public
+    int readMembers(DataHub dataHub, int id, int[] members, Consumer<GroupMember> out) throws IOException
+    { return readMembers(group(dataHub, id), members, out); }
+
+    /**
+     * 设置每次调用同时进行的读取数量
+     * <p>
+     * 超过线程池大小的部分会排队，同时占用的内存约为该数量个数据的大小
+     *
+     * @param parallelism 读取数量，最小为 {@code 1}
+     */
+    public
+    void setParallelism(int parallelism) { this.parallelism = Math.max(1, parallelism); }
+
+    public
+    int getParallelism() { return parallelism; }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 并行读取并按照顺序交出
+     * <p>
+     * 提交的读取保持在窗口大小以内，窗口最前面的读取完成后交出并提交下一个<br/>
+     * 回调抛出异常时取消未开始的读取
+     *
+     * @param group   组对象
+     * @param members 组内 id
+     * @param out     结果回调
+     *
+     * @return 读取的数据数量
+     */
+    private
+    int readMembers(Group group, int[] members, Consumer<GroupMember> out) {
+        var t = Instrument.start();
+        var window = parallelism;
+        var pending = new ArrayDeque<CompletableFuture<GroupMember>>(Math.min(window, members.length));
+        var next = 0;
+        try {
+            while( next < members.length || !pending.isEmpty() ){
+                // 填满窗口
+                while( next < members.length && pending.size() < window ){
+                    var index = next++;
+                    pending.add(CompletableFuture.supplyAsync(() -> read(group, index, members[index]), Readers));
+                }
+                out.accept(pending.poll().join());
+            }
+        } finally {
+            pending.forEach(f -> f.cancel(false));
+            Instrument.time("group.fanout", t);
+        }
+        return members.length;
+    }
+
+    /**
+     * 读取单个数据
+     *
+     * @param group 组对象
+     * @param index 在记录中的位置
+     * @param id    组内 id
+     *
+     * @return 读取结果
+     */
+    private static
+    GroupMember read(Group group, int index, int id) {
+        try ( var in = group.readData(id) ) {
+            return new GroupMember(index, id, ByteBuffer.wrap(in.readAllBytes()), null);
+        } catch ( Exception e ) {
+            Instrument.count("group.fanout.error", 1);
+            return new GroupMember(index, id, null, e);
+        }
+    }
+
+    /**
+     * 获取组对象
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      组 id
+     *
+     * @return 组对象
+     *
+     * @throws IOException 组不存在
+     */
+    private static
+    Group group(DataHub dataHub, int id) throws IOException {
+        try {
+            return StoragePass.files(dataHub).getGroup(id);
+        } catch ( IOException | RuntimeException e ) {
+            throw e;
+        } catch ( Exception e ) {
+            throw new IOException(e);
+        }
+    }
+}
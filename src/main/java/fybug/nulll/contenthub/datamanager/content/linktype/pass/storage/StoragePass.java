@@ -0,0 +1,212 @@
+package fybug.nulll.contenthub.datamanager.content.linktype.pass.storage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fybug.nulll.contenthub.datamanager.DataHub;
+import fybug.nulll.contenthub.datamanager.DataManager;
+import fybug.nulll.contenthub.datamanager.content.datafile.DataInfo;
+import fybug.nulll.contenthub.datamanager.content.datafile.FileManager;
+import fybug.nulll.contenthub.datamanager.content.datafile.error.NoDataException;
+import fybug.nulll.contenthub.datamanager.content.linktype.ByteRange;
+import fybug.nulll.contenthub.datamanager.content.linktype.DataIOofBytes;
+import fybug.nulll.contenthub.datamanager.content.linktype.DataIOofStorage;
+import fybug.nulll.contenthub.datamanager.content.linktype.DataIOofType;
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <h2>存储类型数据处理.</h2>
+ * <p>
+ * 图片、文件与 json 、xml 、html 等文档数据保存在 {@link DataManager#getStoragePath()} 下各容器的目录中，
+ * 每个目录由一个 {@link FileManager} 管理，在第一次使用时创建
+ * <p>
+ * 通道读写不会将整个数据放入内存，写入时先传输到临时文件再替换数据<br/>
+ * {@link #passdata(DataHub, int)} 与 {@link #datato(DataHub, int, String)} 以 UTF-8 文本读写整个数据，只适合较小的文档<br/>
+ * 整个读取与写入的耗时记录为 {@code storage.read} 与 {@code storage.write}
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see FileManager
+ */
+public
+class StoragePass implements DataIOofType, DataIOofStorage {
+    /** 已打开的文件管理器，键为容器目录 */
+    private static final Map<Path, FileManager> Managers = new ConcurrentHashMap<>();
+
+    @Override
+    public
+    String passdata(DataHub dataHub, int id) {
+        try {
+            var data = read(dataHub, id);
+            return data == null ? null : UTF_8.decode(data).toString();
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public
+    void datato(DataHub dataHub, int id, String data) {
+        try {
+            write(dataHub, id, data == null ? null : ByteBuffer.wrap(data.getBytes(UTF_8)));
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    ByteBuffer read(DataHub dataHub, int id) throws IOException {
+        var fm = files(dataHub);
+        var t = Instrument.start();
+        try {
+            // 开启映射读取时直接使用映射
+            var map = fm.mapData(id);
+            if (map != null) {
+                Instrument.time("storage.read", t);
+                return map;
+            }
+            try ( var in = fm.getData(id) ) {
+                var r = ByteBuffer.wrap(in.readAllBytes());
+                Instrument.time("storage.read", t);
+                return r;
+            }
+        } catch ( NoDataException e ) {
+            return null;
+        } catch ( IOException | RuntimeException e ) {
+            throw e;
+        } catch ( Exception e ) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public
+    void write(DataHub dataHub, int id, ByteBuffer data) throws IOException {
+        if (data == null) {
+            remove(dataHub, id);
+            return;
+        }
+        write(dataHub, id, new DataIOofBytes.BufferChannel(data));
+    }
+
+    @Override
+    public
+    void write(DataHub dataHub, int id, ReadableByteChannel in) throws IOException {
+        var fm = files(dataHub);
+        var t = Instrument.start();
+        var tmp = fm.putTemp(id, in);
+        try {
+            fm.putFile(id, tmp);
+            Instrument.time("storage.write", t);
+        } catch ( Exception e ) {
+            tmp.delete();
+            if (e instanceof IOException)
+                throw (IOException) e;
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public
+    ReadableByteChannel open(DataHub dataHub, int id) throws IOException
+    { return open(dataHub, id, 0, Long.MAX_VALUE); }
+
+    @Override
+    public
+    ReadableByteChannel open(DataHub dataHub, int id, ByteRange range) throws IOException
+    { return open(dataHub, id, range.getFrom(), range.getLength()); }
+
+    @Override
+    public
+    DataInfo info(DataHub dataHub, int id) throws IOException {
+        try {
+            return files(dataHub).getInfo(id);
+        } catch ( NoDataException e ) {
+            return null;
+        } catch ( IOException | RuntimeException e ) {
+            throw e;
+        } catch ( Exception e ) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 移除数据
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void remove(DataHub dataHub, int id) throws IOException {
+        try {
+            files(dataHub).removeData(id);
+        } catch ( IOException | RuntimeException e ) {
+            throw e;
+        } catch ( Exception e ) {
+            throw new IOException(e);
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 打开数据区间
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param from    开始的位置
+     * @param length  读取的长度
+     *
+     * @return 读取通道，不存在为 {@code null}
+     *
+     * @throws IOException 读取错误
+     */
+    private
+    ReadableByteChannel open(DataHub dataHub, int id, long from, long length) throws IOException {
+        try {
+            return files(dataHub).getData(id, from, length);
+        } catch ( NoDataException e ) {
+            return null;
+        } catch ( IOException | RuntimeException e ) {
+            throw e;
+        } catch ( Exception e ) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 获取容器的文件管理器
+     *
+     * @param dataHub 数据容器
+     *
+     * @return 文件管理器
+     *
+     * @throws IOException 无法创建容器目录
+     */
+    static
+    FileManager files(DataHub dataHub) throws IOException {
+        var dir = DataManager.getStoragePath().resolve(String.valueOf(dataHub.getId()));
+        try {
+            return Managers.computeIfAbsent(dir, d -> {
+                try {
+                    return new FileManager(dataHub, d);
+                } catch ( IOException e ) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch ( UncheckedIOException e ) {
+            throw e.getCause();
+        }
+    }
+}
@@ -1,20 +1,60 @@
 package fybug.nulll.contenthub.datamanager.content.linktype.pass.value;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
 import fybug.nulll.contenthub.datamanager.DataHub;
+import fybug.nulll.contenthub.datamanager.DataManager;
+import fybug.nulll.contenthub.datamanager.content.linktype.DataIOofBytes;
 import fybug.nulll.contenthub.datamanager.content.linktype.DataIOofType;
 
+/**
+ * <h2>值类型数据处理.</h2>
+ * <p>
+ * 数据以文本保存在 {@link DataManager#getValuePath()} 下的 {@link ValueStore} 中，
+ * 存储为 {@code null} 时移除数据<br/>
+ * 字节读写直接使用保存的 UTF-8 编码
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see ValueStore
+ */
 public
-class ValuePass implements DataIOofType {
+class ValuePass implements DataIOofType, DataIOofBytes {
 
     @Override
     public
     String passdata(DataHub dataHub, int id) {
-        // todo 数据读取
-        return null;
+        try {
+            var v = store().get(dataHub.getId(), id);
+            return v == null ? null : v.toString();
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     public
     void datato(DataHub dataHub, int id, String data) {
-        // todo 数据存储
+        try {
+            store().putString(dataHub.getId(), id, data);
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
     }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    ByteBuffer read(DataHub dataHub, int id) throws IOException { return store().getText(dataHub.getId(), id); }
+
+    @Override
+    public
+    void write(DataHub dataHub, int id, ByteBuffer data) throws IOException
+    { store().putText(dataHub.getId(), id, data); }
+
+    /** 当前的存储 */
+    static
+    ValueStore store() throws IOException { return ValueStore.open(DataManager.getValuePath()); }
 }
@@ -0,0 +1,899 @@
+package fybug.nulll.contenthub.datamanager.content.linktype.pass.value;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import fybug.nulll.contenthub.datamanager.index.IntLongMap;
+import fybug.nulll.contenthub.datamanager.index.IntMap;
+import fybug.nulll.contenthub.datamanager.metrics.Instrument;
+import fybug.nulll.pdconcurrent.SyLock;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <h2>值存储.</h2>
+ * <p>
+ * 保存值类型的小数据，以 {@code (容器 id, 数据 id)} 为键，使用 {@link #open(Path)} 获取目录对应的存储
+ * <p>
+ * 数据只追加写入日志文件，每条记录带有 CRC32C 校验，内存中使用 {@link IntLongMap} 记录每个键的最新记录位置，
+ * 读取只需要一次定位读取<br/>
+ * 数字使用 8 字节的二进制编码保存，文本使用 UTF-8 保存
+ * <p>
+ * 失效的记录过多时在后台整理日志，整理与关闭时会写入索引快照，启动时读入快照后只需要重放快照之后的日志<br/>
+ * 日志末尾不完整或校验失败的记录视为中断的写入并截断
+ * <p>
+ * 写入默认不主动同步，进程崩溃不会丢失数据，断电可能丢失最近的写入，需要时使用 {@link #setSyncWrite(boolean)}
+ *
+ * @author fybug
+ * @version 0.0.5
+ * @see ValuePass
+ * @see Value_NumberPass
+ */
+public final
+class ValueStore implements Closeable {
+    /** 后台整理用的线程 */
+    private static final ExecutorService Compactor = Executors.newSingleThreadExecutor(r -> {
+        var t = new Thread(r, "value-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+    /** 已打开的存储 */
+    private static final Map<Path, ValueStore> Stores = new ConcurrentHashMap<>();
+
+    /** 日志文件名 */
+    public static final String LOG_FILE = "value.log";
+    /** 索引快照文件名 */
+    public static final String INDEX_FILE = "value.idx";
+
+    /** 日志文件标识 */
+    private static final int LOG_MAGIC = 0x43484c47;
+    /** 快照文件标识 */
+    private static final int INDEX_MAGIC = 0x43485653;
+    /** 格式版本 */
+    private static final int VERSION = 1;
+    /** 日志头长度 */
+    private static final int LOG_HEADER = 16;
+    /** 记录头长度，校验码与内容长度 */
+    private static final int RECORD_HEADER = 8;
+    /** 记录内容中值之前的长度，容器 id 、数据 id 与类型 */
+    private static final int BODY_HEADER = 9;
+    /** 值的最大长度 */
+    public static final int MAX_VALUE = 1 << 20;
+    /** 开始整理的最小日志长度 */
+    private static final long COMPACT_MIN = 1 << 20;
+    /** 自动写入快照的追加长度 */
+    private static final long SNAPSHOT_EVERY = 8 << 20;
+
+    /** 删除记录 */
+    static final byte T_REMOVED = 0;
+    /** 文本 */
+    static final byte T_STRING = 1;
+    /** 整数 */
+    static final byte T_LONG = 2;
+    /** 浮点数 */
+    static final byte T_DOUBLE = 3;
+
+    /** 存储目录 */
+    private final Path dir;
+    /** 锁 */
+    private final SyLock lock = SyLock.newRWLock();
+    /** 容器 id -> 数据 id -> 记录位置与长度 */
+    private final IntMap<IntLongMap> index = new IntMap<>();
+    /** 是否已提交整理任务 */
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    /** 整理锁，同时只进行一次整理 */
+    private final Object compactLock = new Object();
+
+    /** 日志文件 */
+    private FileChannel log;
+    /** 日志代号，每次整理后更换 */
+    private long generation;
+    /** 日志长度 */
+    private long end;
+    /** 失效的记录长度 */
+    private long dead;
+    /** 上次快照时的日志长度 */
+    private long snapshotAt;
+    /** 是否同步写入 */
+    private volatile boolean syncWrite = false;
+    /** 是否已关闭 */
+    private volatile boolean closed = false;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 打开存储
+     * <p>
+     * 同一个目录只会打开一次
+     *
+     * @param dir 存储目录
+     *
+     * @return 存储
+     *
+     * @throws IOException 文件系统错误或日志损坏
+     */
+    public static
+    ValueStore open(Path dir) throws IOException {
+        var key = dir.toAbsolutePath().normalize();
+        var s = Stores.get(key);
+        if (s != null && !s.closed)
+            return s;
+
+        synchronized ( Stores ){
+            s = Stores.get(key);
+            if (s == null || s.closed) {
+                s = new ValueStore(key);
+                Stores.put(key, s);
+            }
+            return s;
+        }
+    }
+
+    /** @param dir 存储目录 */
+    private
+    ValueStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        load();
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 读取值
+     *
+     * @param hub 容器 id
+     * @param id  数据 id
+     *
+     * @return {@link String} 、{@link Long} 或 {@link Double} ，不存在为 {@code null}
+     *
+     * @throws IOException 文件系统错误或记录损坏
+     */
+    public
+    Object get(int hub, int id) throws IOException {
+        var r = record(hub, id);
+        return r == null ? null : decode(r.get(RECORD_HEADER + 8), r);
+    }
+
+    /**
+     * 读取值的 UTF-8 文本
+     * <p>
+     * 文本直接返回记录中的编码，不经过 {@link String} 转换，数字返回十进制文本
+     *
+     * @param hub 容器 id
+     * @param id  数据 id
+     *
+     * @return 只读的缓冲区，不存在为 {@code null}
+     *
+     * @throws IOException 文件系统错误或记录损坏
+     */
+    public
+    ByteBuffer getText(int hub, int id) throws IOException {
+        var r = record(hub, id);
+        if (r == null)
+            return null;
+        var type = r.get(RECORD_HEADER + 8);
+        if (type == T_STRING)
+            return r.slice().asReadOnlyBuffer();
+        return US_ASCII.encode(String.valueOf(decode(type, r))).asReadOnlyBuffer();
+    }
+
+    /**
+     * 读取整数
+     * <p>
+     * 浮点数会截断为整数
+     *
+     * @param hub 容器 id
+     * @param id  数据 id
+     * @param def 不存在或不是数字时返回的值
+     *
+     * @return 整数
+     *
+     * @throws IOException 文件系统错误或记录损坏
+     */
+    public
+    long getLong(int hub, int id, long def) throws IOException {
+        var r = record(hub, id);
+        if (r == null)
+            return def;
+        switch ( r.get(RECORD_HEADER + 8) ) {
+            case T_LONG:
+                return r.getLong();
+            case T_DOUBLE:
+                return (long) r.getDouble();
+            default:
+                return def;
+        }
+    }
+
+    /**
+     * 读取浮点数
+     *
+     * @param hub 容器 id
+     * @param id  数据 id
+     * @param def 不存在或不是数字时返回的值
+     *
+     * @return 浮点数
+     *
+     * @throws IOException 文件系统错误或记录损坏
+     */
+    public
+    double getDouble(int hub, int id, double def) throws IOException {
+        var r = record(hub, id);
+        if (r == null)
+            return def;
+        switch ( r.get(RECORD_HEADER + 8) ) {
+            case T_LONG:
+                return r.getLong();
+            case T_DOUBLE:
+                return r.getDouble();
+            default:
+                return def;
+        }
+    }
+
+    /**
+     * 值是否为整数
+     *
+     * @param hub 容器 id
+     * @param id  数据 id
+     *
+     * @return 保存的是整数
+     *
+     * @throws IOException 文件系统错误或记录损坏
+     */
+    public
+    boolean isLong(int hub, int id) throws IOException {
+        var r = record(hub, id);
+        return r != null && r.get(RECORD_HEADER + 8) == T_LONG;
+    }
+
+    /**
+     * 写入文本
+     *
+     * @param hub   容器 id
+     * @param id    数据 id
+     * @param value 文本，为 {@code null} 时移除
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void putString(int hub, int id, String value) throws IOException
+    { putText(hub, id, value == null ? null : ByteBuffer.wrap(value.getBytes(UTF_8))); }
+
+    /**
+     * 写入 UTF-8 文本
+     * <p>
+     * 直接保存缓冲区中剩余的内容，不检查编码，不会改变缓冲区的位置
+     *
+     * @param hub   容器 id
+     * @param id    数据 id
+     * @param value 文本的编码，为 {@code null} 时移除
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void putText(int hub, int id, ByteBuffer value) throws IOException {
+        if (value == null) {
+            remove(hub, id);
+            return;
+        }
+        append(hub, id, T_STRING, value.duplicate());
+    }
+
+    /**
+     * 写入整数
+     *
+     * @param hub   容器 id
+     * @param id    数据 id
+     * @param value 整数
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void putLong(int hub, int id, long value) throws IOException
+    { append(hub, id, T_LONG, ByteBuffer.allocate(8).putLong(0, value)); }
+
+    /**
+     * 写入浮点数
+     *
+     * @param hub   容器 id
+     * @param id    数据 id
+     * @param value 浮点数
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void putDouble(int hub, int id, double value) throws IOException
+    { append(hub, id, T_DOUBLE, ByteBuffer.allocate(8).putDouble(0, value)); }
+
+    /**
+     * 移除值
+     *
+     * @param hub 容器 id
+     * @param id  数据 id
+     *
+     * @return 是否存在
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    boolean remove(int hub, int id) throws IOException {
+        return lock.trywrite(IOException.class, () -> {
+            checkOpen();
+            var ids = index.get(hub);
+            if (ids == null || !ids.containsKey(id))
+                return false;
+            append(hub, id, T_REMOVED, ByteBuffer.allocate(0));
+            return true;
+        });
+    }
+
+    /** 保存的值数量 */
+    public
+    int size() {
+        return lock.read(() -> {
+            var n = new int[1];
+            index.forEach((hub, ids) -> n[0] += ids.size());
+            return n[0];
+        });
+    }
+
+    /**
+     * 设置是否同步写入
+     *
+     * @param sync 为 {@code true} 时每次写入都同步到磁盘
+     */
+    public
+    void setSyncWrite(boolean sync) { syncWrite = sync; }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 整理日志
+     * <p>
+     * 只保留每个键的最新记录并写入新的日志，随后写入索引快照<br/>
+     * 在读锁中记录当前的日志长度与有效记录，不加锁复制这些记录，只在复制期间追加的日志与替换文件时持有写锁，
+     * 整理期间的读取不会被阻塞
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void compact() throws IOException {
+        synchronized ( compactLock ){
+            var t = Instrument.start();
+            var tmp = dir.resolve(LOG_FILE + ".tmp");
+            var gen = System.nanoTime() ^ Double.doubleToLongBits(Math.random());
+
+            /* 记录整理的范围，容器 id 、数据 id 、记录位置与日志长度 */
+            var live = lock.tryread(IOException.class, () -> {
+                checkOpen();
+                var n = new int[1];
+                index.forEach((hub, ids) -> n[0] += ids.size());
+                var r = new long[][]{new long[n[0]], new long[n[0]], new long[n[0]], {end}};
+                n[0] = 0;
+                index.forEach((hub, ids) -> ids.forEach((id, loc) -> {
+                    r[0][n[0]] = hub;
+                    r[1][n[0]] = id;
+                    r[2][n[0]++] = loc;
+                }));
+                return r;
+            });
+            var mark = live[3][0];
+
+            try ( var ch = FileChannel.open(tmp, WRITE, CREATE, TRUNCATE_EXISTING) ) {
+                writeLogHeader(ch, gen);
+
+                /* 不加锁复制有效记录，整理开始前的记录不会再改变 */
+                var moved = new IntMap<IntLongMap>();
+                long pos = LOG_HEADER;
+                for ( int i = 0; i < live[2].length; i++ ){
+                    var loc = live[2][i];
+                    var buff = read(offset(loc), length(loc));
+                    while( buff.hasRemaining() )
+                        ch.write(buff, pos + buff.position());
+                    moved.computeIfAbsent((int) live[0][i], k -> new IntLongMap()).put((int) live[1][i], loc(pos, length(loc)));
+                    pos += length(loc);
+                }
+                ch.force(true);
+                var base = pos;
+
+                lock.trywrite(IOException.class, () -> {
+                    checkOpen();
+                    /* 原样复制整理期间追加的日志，保留其中的删除记录 */
+                    var to = base;
+                    for ( long from = mark; from < end; ){
+                        var n = log.transferTo(from, end - from, ch.position(to));
+                        if (n <= 0)
+                            throw new EOFException("value log truncated at " + from);
+                        from += n;
+                        to += n;
+                    }
+                    ch.force(true);
+
+                    /* 更新记录位置 */
+                    var now = new IntMap<IntLongMap>(index.size());
+                    var size = new long[1];
+                    var error = new IOException[1];
+                    index.forEach((hub, ids) -> {
+                        var m = new IntLongMap(ids.size());
+                        var old = moved.get(hub);
+                        ids.forEach((id, loc) -> {
+                            long nl;
+                            if (offset(loc) >= mark)
+                                nl = loc(offset(loc) - mark + base, length(loc));
+                            else
+                                nl = old == null ? -1 : old.get(id, -1);
+                            if (nl == -1 && error[0] == null)
+                                error[0] = new IOException("value record lost in compaction: " + hub + "/" + id);
+                            m.put(id, nl);
+                            size[0] += length(loc);
+                        });
+                        now.put(hub, m);
+                    });
+                    if (error[0] != null)
+                        throw error[0];
+
+                    /* 替换日志 */
+                    log.close();
+                    Files.move(tmp, dir.resolve(LOG_FILE), REPLACE_EXISTING, ATOMIC_MOVE);
+                    log = FileChannel.open(dir.resolve(LOG_FILE), READ, WRITE);
+                    index.clear();
+                    now.forEach(index::put);
+                    generation = gen;
+                    end = to;
+                    dead = to - LOG_HEADER - size[0];
+                });
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+
+            // 旧快照的日志代号已失效，重启时会重放整个新日志直到新的快照写入
+            snapshot();
+            Instrument.time("value.compact", t);
+        }
+    }
+
+    /**
+     * 写入索引快照
+     * <p>
+     * 写入期间只阻塞追加
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void snapshot() throws IOException {
+        lock.tryread(IOException.class, () -> {
+            checkOpen();
+            writeSnapshot();
+        });
+    }
+
+    /**
+     * 关闭存储
+     * <p>
+     * 会写入索引快照
+     *
+     * @throws IOException 文件系统错误
+     */
+    @Override
+    public
+    void close() throws IOException {
+        lock.trywrite(IOException.class, () -> {
+            if (closed)
+                return;
+            try {
+                writeSnapshot();
+            } finally {
+                closed = true;
+                log.close();
+                Stores.remove(dir, this);
+            }
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 追加记录
+     *
+     * @param hub   容器 id
+     * @param id    数据 id
+     * @param type  值类型
+     * @param value 值的编码
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void append(int hub, int id, byte type, ByteBuffer value) throws IOException {
+        var len = value.remaining();
+        if (len > MAX_VALUE)
+            throw new IllegalArgumentException("value too large: " + len);
+
+        var buff = ByteBuffer.allocate(RECORD_HEADER + BODY_HEADER + len);
+        buff.position(RECORD_HEADER);
+        buff.putInt(hub).putInt(id).put(type).put(value);
+        var crc = new CRC32C();
+        crc.update(buff.array(), RECORD_HEADER, BODY_HEADER + len);
+        buff.putInt(0, (int) crc.getValue()).putInt(4, BODY_HEADER + len);
+        buff.flip();
+
+        var need = lock.trywrite(IOException.class, () -> {
+            checkOpen();
+            var t = Instrument.start();
+            var at = end;
+            while( buff.hasRemaining() )
+                log.write(buff, at + buff.position());
+            if (syncWrite)
+                log.force(false);
+            end += buff.limit();
+            Instrument.time("value.append", t);
+
+            /* 更新索引 */
+            var ids = index.get(hub);
+            var old = ids == null ? -1 : ids.get(id, -1);
+            if (old != -1)
+                dead += length(old);
+            if (type == T_REMOVED) {
+                dead += buff.limit();
+                if (ids != null) {
+                    ids.remove(id, -1);
+                    if (ids.isEmpty())
+                        index.remove(hub);
+                }
+            } else
+                index.computeIfAbsent(hub, k -> new IntLongMap()).put(id, loc(at, buff.limit()));
+
+            return needCompact() || end - snapshotAt >= SNAPSHOT_EVERY;
+        });
+        if (need)
+            maintain();
+    }
+
+    /**
+     * 读取键的最新记录
+     *
+     * @param hub 容器 id
+     * @param id  数据 id
+     *
+     * @return 记录，位置在值的开头，不存在为 {@code null}
+     *
+     * @throws IOException 文件系统错误或记录损坏
+     */
+    private
+    ByteBuffer record(int hub, int id) throws IOException {
+        return lock.tryread(IOException.class, () -> {
+            checkOpen();
+            var ids = index.get(hub);
+            var loc = ids == null ? -1 : ids.get(id, -1);
+            if (loc == -1)
+                return null;
+            return read(offset(loc), length(loc)).position(RECORD_HEADER + BODY_HEADER);
+        });
+    }
+
+    /** 在后台整理日志或写入快照 */
+    private
+    void maintain() {
+        if (!compacting.compareAndSet(false, true))
+            return;
+        Compactor.execute(() -> {
+            try {
+                if (lock.read(this::needCompact))
+                    compact();
+                else
+                    snapshot();
+            } catch ( Exception e ) {
+                if (!closed)
+                    e.printStackTrace();
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /** 是否需要整理 */
+    private
+    boolean needCompact() { return end >= COMPACT_MIN && dead * 2 >= end; }
+
+    /**
+     * 读取记录并校验
+     *
+     * @param offset 记录位置
+     * @param length 记录长度
+     *
+     * @return 记录，位置为 {@code 0}
+     *
+     * @throws IOException 文件系统错误或记录损坏
+     */
+    private
+    ByteBuffer read(long offset, int length) throws IOException {
+        var t = Instrument.start();
+        var buff = ByteBuffer.allocate(length);
+        while( buff.hasRemaining() ){
+            if (log.read(buff, offset + buff.position()) < 0)
+                throw new EOFException("value record truncated at " + offset);
+        }
+        Instrument.time("value.read", t);
+        var crc = new CRC32C();
+        crc.update(buff.array(), RECORD_HEADER, length - RECORD_HEADER);
+        if (buff.getInt(0) != (int) crc.getValue())
+            throw new IOException("value record corrupted at " + offset);
+        return buff.rewind();
+    }
+
+    /**
+     * 解码值
+     *
+     * @param type  值类型
+     * @param value 值的编码
+     *
+     * @return 值
+     */
+    private static
+    Object decode(byte type, ByteBuffer value) {
+        switch ( type ) {
+            case T_STRING:
+                return UTF_8.decode(value).toString();
+            case T_LONG:
+                return value.getLong();
+            case T_DOUBLE:
+                return value.getDouble();
+            default:
+                return null;
+        }
+    }
+
+    /** 检查是否已关闭 */
+    private
+    void checkOpen() throws IOException {
+        if (closed)
+            throw new IOException("value store closed: " + dir);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 读入日志
+     * <p>
+     * 快照有效时从快照之后开始重放，否则重放整个日志
+     *
+     * @throws IOException 文件系统错误或日志损坏
+     */
+    private
+    void load() throws IOException {
+        var path = dir.resolve(LOG_FILE);
+        log = FileChannel.open(path, READ, WRITE, CREATE);
+        try {
+            if (log.size() < LOG_HEADER) {
+                generation = System.nanoTime() ^ Double.doubleToLongBits(Math.random());
+                writeLogHeader(log, generation);
+                log.force(true);
+                end = snapshotAt = LOG_HEADER;
+                return;
+            }
+
+            var head = ByteBuffer.allocate(LOG_HEADER);
+            log.read(head, 0);
+            if (head.getInt(0) != LOG_MAGIC || head.getInt(4) != VERSION)
+                throw new IOException("bad value log: " + path);
+            generation = head.getLong(8);
+
+            var from = readSnapshot() ? snapshotAt : LOG_HEADER;
+            if (from == LOG_HEADER) {
+                index.clear();
+                dead = 0;
+            }
+            replay(from);
+            snapshotAt = from;
+        } catch ( IOException | RuntimeException e ) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 重放日志
+     *
+     * @param from 开始的位置
+     *
+     * @throws IOException 文件系统错误
+     */
+    private
+    void replay(long from) throws IOException {
+        var size = log.size();
+        var pos = from;
+        try ( var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log.position(from)), 1 << 16)) ) {
+            var crc = new CRC32C();
+            var body = new byte[BODY_HEADER + 256];
+            while( pos + RECORD_HEADER + BODY_HEADER <= size ){
+                var sum = in.readInt();
+                var len = in.readInt();
+                if (len < BODY_HEADER || len > BODY_HEADER + MAX_VALUE || pos + RECORD_HEADER + len > size)
+                    break;
+                if (body.length < len)
+                    body = new byte[len];
+                in.readFully(body, 0, len);
+                crc.reset();
+                crc.update(body, 0, len);
+                if (sum != (int) crc.getValue())
+                    break;
+
+                var b = ByteBuffer.wrap(body, 0, len);
+                var hub = b.getInt();
+                var id = b.getInt();
+                var type = b.get();
+                var total = RECORD_HEADER + len;
+
+                var ids = index.get(hub);
+                var old = ids == null ? -1 : ids.get(id, -1);
+                if (old != -1)
+                    dead += length(old);
+                if (type == T_REMOVED) {
+                    dead += total;
+                    if (ids != null) {
+                        ids.remove(id, -1);
+                        if (ids.isEmpty())
+                            index.remove(hub);
+                    }
+                } else
+                    index.computeIfAbsent(hub, k -> new IntLongMap()).put(id, loc(pos, total));
+                pos += total;
+            }
+        } catch ( EOFException ignored ) {
+            // 不完整的记录
+        }
+
+        /* 截断中断的写入，输入流关闭时会关闭通道 */
+        log = FileChannel.open(dir.resolve(LOG_FILE), READ, WRITE);
+        if (pos < log.size()) {
+            log.truncate(pos);
+            log.force(true);
+        }
+        end = pos;
+    }
+
+    /**
+     * 读入索引快照
+     *
+     * @return 快照是否有效
+     */
+    private
+    boolean readSnapshot() {
+        var path = dir.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(path))
+            return false;
+
+        var crc = new CRC32C();
+        try ( var in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(path)), crc)) ) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != VERSION || in.readLong() != generation)
+                return false;
+            var at = in.readLong();
+            var deadNow = in.readLong();
+            if (at < LOG_HEADER || at > log.size())
+                return false;
+
+            var map = new IntMap<IntLongMap>();
+            for ( int h = in.readInt(); h > 0; h-- ){
+                var hub = in.readInt();
+                var n = in.readInt();
+                var ids = new IntLongMap(n);
+                for ( int i = 0; i < n; i++ )
+                    ids.put(in.readInt(), in.readLong());
+                map.put(hub, ids);
+            }
+            var sum = (int) crc.getValue();
+            if (in.readInt() != sum)
+                return false;
+
+            index.clear();
+            map.forEach(index::put);
+            snapshotAt = at;
+            dead = deadNow;
+            return true;
+        } catch ( IOException e ) {
+            // 快照损坏时重放整个日志
+            return false;
+        }
+    }
+
+    /**
+     * 写出索引快照
+     * <p>
+     * 先同步日志，保证快照指向的记录都已写入磁盘，再写入临时文件并替换<br/>
+     * 需要持有读锁或写锁，同时只有一个线程写入
+     *
+     * @throws IOException 文件系统错误
+     */
+    private synchronized
+    void writeSnapshot() throws IOException {
+        var t = Instrument.start();
+        log.force(false);
+        var path = dir.resolve(INDEX_FILE);
+        var tmp = dir.resolve(INDEX_FILE + ".tmp");
+        var crc = new CRC32C();
+        try ( var ch = FileChannel.open(tmp, WRITE, CREATE, TRUNCATE_EXISTING);
+              var out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)), crc)) )
+        {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeLong(end);
+            out.writeLong(dead);
+            out.writeInt(index.size());
+
+            var error = new IOException[1];
+            index.forEach((hub, ids) -> {
+                try {
+                    out.writeInt(hub);
+                    out.writeInt(ids.size());
+                    ids.forEach((id, loc) -> {
+                        try {
+                            out.writeInt(id);
+                            out.writeLong(loc);
+                        } catch ( IOException e ) {
+                            error[0] = e;
+                        }
+                    });
+                } catch ( IOException e ) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null)
+                throw error[0];
+            // 校验码不计入自身
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        snapshotAt = end;
+        Instrument.time("value.snapshot", t);
+    }
+
+    /** 写入日志头 */
+    private static
+    void writeLogHeader(FileChannel ch, long generation) throws IOException {
+        var head = ByteBuffer.allocate(LOG_HEADER).putInt(LOG_MAGIC).putInt(VERSION).putLong(generation).flip();
+        while( head.hasRemaining() )
+            ch.write(head, head.position());
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 合并记录位置与长度 */
+    private static
+    long loc(long offset, int length) { return offset << 24 | length; }
+
+    /** 记录位置 */
+    private static
+    long offset(long loc) { return loc >>> 24; }
+
+    /** 记录长度 */
+    private static
+    int length(long loc) { return (int) (loc & 0xFFFFFF); }
+}
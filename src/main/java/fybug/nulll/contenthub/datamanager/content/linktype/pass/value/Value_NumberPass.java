@@ -1,20 +1,121 @@
 package fybug.nulll.contenthub.datamanager.content.linktype.pass.value;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
 import fybug.nulll.contenthub.datamanager.DataHub;
+import fybug.nulll.contenthub.datamanager.content.linktype.DataIOofNumber;
 import fybug.nulll.contenthub.datamanager.content.linktype.DataIOofType;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * <h2>数字类型数据处理.</h2>
+ * <p>
+ * 整数与浮点数以 8 字节的二进制编码保存在 {@link ValueStore} 中，优先解析为整数，
+ * 无法解析为数字时抛出 {@link IllegalArgumentException}<br/>
+ * 存储为 {@code null} 或空文本时移除数据
+ * <p>
+ * 字节读写使用十进制文本，基本类型读写不经过文本转换
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see ValueStore
+ */
 public
-class Value_NumberPass implements DataIOofType {
+class Value_NumberPass implements DataIOofType, DataIOofNumber {
 
     @Override
     public
     String passdata(DataHub dataHub, int id) {
-        // todo 数据读取
-        return null;
+        try {
+            var v = ValuePass.store().get(dataHub.getId(), id);
+            return v == null ? null : v.toString();
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     public
     void datato(DataHub dataHub, int id, String data) {
-        // todo 数据存储
+        try {
+            put(dataHub, id, data);
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    ByteBuffer read(DataHub dataHub, int id) throws IOException
+    { return ValuePass.store().getText(dataHub.getId(), id); }
+
+    @Override
+    public
+    void write(DataHub dataHub, int id, ByteBuffer data) throws IOException
+    { put(dataHub, id, data == null ? null : US_ASCII.decode(data.duplicate()).toString()); }
+
+    @Override
+    public
+    long readLong(DataHub dataHub, int id, long def) throws IOException
+    { return ValuePass.store().getLong(dataHub.getId(), id, def); }
+
+    @Override
+    public
+    double readDouble(DataHub dataHub, int id, double def) throws IOException
+    { return ValuePass.store().getDouble(dataHub.getId(), id, def); }
+
+    @Override
+    public
+    boolean isLong(DataHub dataHub, int id) throws IOException
+    { return ValuePass.store().isLong(dataHub.getId(), id); }
+
+    @Override
+    public
+    void writeLong(DataHub dataHub, int id, long value) throws IOException
+    { ValuePass.store().putLong(dataHub.getId(), id, value); }
+
+    @Override
+    public
+    void writeDouble(DataHub dataHub, int id, double value) throws IOException
+    { ValuePass.store().putDouble(dataHub.getId(), id, value); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 解析并存储数字
+     *
+     * @param dataHub 数据所属的容器
+     * @param id      数据的 id
+     * @param data    数字的文本，为 {@code null} 或空文本时移除数据
+     *
+     * @throws IOException 存储错误
+     */
+    private
+    void put(DataHub dataHub, int id, String data) throws IOException {
+        var store = ValuePass.store();
+        if (data == null || (data = data.strip()).isEmpty()) {
+            store.remove(dataHub.getId(), id);
+            return;
+        }
+
+        try {
+            store.putLong(dataHub.getId(), id, Long.parseLong(data));
+        } catch ( NumberFormatException e ) {
+            store.putDouble(dataHub.getId(), id, parseDouble(data));
+        }
+    }
+
+    /** 解析浮点数 */
+    private static
+    double parseDouble(String data) {
+        try {
+            return Double.parseDouble(data);
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException("not a number: " + data, e);
+        }
     }
 }
@@ -0,0 +1,231 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import fybug.nulll.pdconcurrent.SyLock;
+import lombok.Getter;
+
+/**
+ * <h2>内容索引.</h2>
+ * <p>
+ * 集中管理一个 {@link fybug.nulll.contenthub.datamanager.DataHub} 中内容的各个索引，并统一读写快照<br/>
+ * 所有索引都写入快照，任意一个快照不存在时索引视为不完整
+ * <p>
+ * 索引不完整时 {@link #isReady()} 为 {@code false} ，查询不能只使用索引回答，
+ * 需要通过 {@link #rebuild(Consumer)} 从数据库重新加入所有内容，完成后恢复<br/>
+ * 不完整的索引不会写出快照，已有的快照会被删除，避免下次启动时读入不完整的索引<br/>
+ * 重建期间再次标记为不完整时，重建完成后仍为不完整
+ * <p>
+ * 修改需要通过该类进行，修改之间可以并发，写出与读入快照时会等待修改完成并阻止新的修改，
+ * 写出的各个快照与是否完整的状态对应同一时刻的索引
+ *
+ * @author fybug
+ * @version 0.0.9
+ * @see TagIndex
+ * @see TextIndex
+ * @see DateIndex
+ * @see LinkTypeIndex
+ */
+public
+class ContentIndex {
+    /** 标签索引快照文件名 */
+    public static final String TAGS_FILE = "tags.idx";
+    /** 全文索引快照文件名 */
+    public static final String TEXT_FILE = "text.idx";
+    /** 日期索引快照文件名 */
+    public static final String DATE_FILE = "date.idx";
+    /** 处理类型索引快照文件名 */
+    public static final String LINKTYPE_FILE = "linktype.idx";
+    /** 所有快照文件名 */
+    private static final String[] FILES = {TAGS_FILE, TEXT_FILE, DATE_FILE, LINKTYPE_FILE};
+
+    /** 标签索引 */
+    @Getter private final TagIndex tags = new TagIndex();
+    /** 全文索引 */
+    @Getter private final TextIndex text = new TextIndex();
+    /** 日期索引 */
+    @Getter private final DateIndex date = new DateIndex();
+    /** 处理类型索引 */
+    @Getter private final LinkTypeIndex linkType = new LinkTypeIndex();
+    /** 锁，修改时为读锁，写出与读入快照时为写锁 */
+    private final SyLock lock = SyLock.newRWLock();
+    /** 索引是否包含所有内容 */
+    private volatile boolean ready = true;
+    /** 标记为不完整的次数 */
+    private long incomplete = 0;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 设置内容的所有索引
+     *
+     * @param id       内容 id
+     * @param tags     标签 id 组
+     * @param title    标题
+     * @param des      描述
+     * @param date     日期
+     * @param linkType 处理类型 id
+     */
+    public
+    void put(int id, int[] tags, String title, String des, String date, int linkType) {
+        lock.read(() -> {
+            this.tags.put(id, tags);
+            text.put(id, title, des);
+            this.date.put(id, date);
+            this.linkType.put(id, linkType);
+        });
+    }
+
+    /**
+     * 修改内容的索引
+     * <p>
+     * 为 {@code null} 的字段与小于等于 {@code 0} 的处理类型保持不变<br/>
+     * 未索引的内容无法得到完整的文本时会标记索引不完整
+     *
+     * @param id       内容 id
+     * @param tags     新的标签 id 组
+     * @param title    新的标题
+     * @param des      新的描述
+     * @param date     新的日期
+     * @param linkType 新的处理类型 id
+     */
+    public
+    void alter(int id, int[] tags, String title, String des, String date, int linkType) {
+        boolean ok = lock.read(() -> {
+            if (tags != null)
+                this.tags.put(id, tags);
+            if (date != null)
+                this.date.put(id, date);
+            if (linkType > 0)
+                this.linkType.put(id, linkType);
+            return (title == null && des == null) || text.update(id, title, des);
+        });
+        // 读锁中不能获取写锁
+        if (!ok)
+            markIncomplete();
+    }
+
+    /**
+     * 移除内容
+     *
+     * @param id 内容 id
+     */
+    public
+    void remove(int id) {
+        lock.read(() -> {
+            tags.remove(id);
+            text.remove(id);
+            date.remove(id);
+            linkType.remove(id);
+        });
+    }
+
+    /**
+     * 从所有内容中移除标签
+     *
+     * @param tags 标签 id 组
+     */
+    public
+    void removeTags(int[] tags) { lock.read(() -> this.tags.removeTags(tags)); }
+
+    /** 清空所有索引 */
+    public
+    void clear() {
+        lock.read(() -> {
+            tags.clear();
+            text.clear();
+            date.clear();
+            linkType.clear();
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 索引是否包含所有内容，为 {@code false} 时查询不能只使用索引回答 */
+    public
+    boolean isReady() { return ready; }
+
+    /**
+     * 标记索引不完整
+     * <p>
+     * 在发现索引缺少内容时调用，直到 {@link #rebuild(Consumer)} 完成前查询不再只使用索引回答
+     */
+    public
+    void markIncomplete() {
+        lock.write(() -> {
+            incomplete++;
+            ready = false;
+        });
+    }
+
+    /**
+     * 重建索引
+     * <p>
+     * 清空所有索引后由 {@code source} 通过 {@link #put(int, int[], String, String, String, int)} 加入所有内容，
+     * 重建期间 {@link #isReady()} 为 {@code false} ，期间调用了 {@link #markIncomplete()} 时完成后仍为 {@code false}
+     *
+     * @param source 加入所有内容
+     */
+    public synchronized
+    void rebuild(Consumer<ContentIndex> source) {
+        long mark = lock.write(() -> {
+            ready = false;
+            return incomplete;
+        });
+        clear();
+        source.accept(this);
+        lock.write(() -> {
+            ready = incomplete == mark;
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 写出快照
+     * <p>
+     * 写出期间修改会等待，各个快照对应同一时刻的索引
+     *
+     * @param dir 快照所在的文件夹
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void save(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        lock.trywrite(IOException.class, () -> {
+            if (!ready) {
+                for ( String name : FILES )
+                    Files.deleteIfExists(dir.resolve(name));
+                return;
+            }
+            tags.save(dir.resolve(TAGS_FILE));
+            text.save(dir.resolve(TEXT_FILE));
+            date.save(dir.resolve(DATE_FILE));
+            linkType.save(dir.resolve(LINKTYPE_FILE));
+        });
+    }
+
+    /**
+     * 读入快照
+     * <p>
+     * 不存在或为旧版本的快照会使对应的索引为空，并标记索引不完整
+     *
+     * @param dir 快照所在的文件夹
+     *
+     * @throws IOException 文件系统错误或快照损坏
+     */
+    public synchronized
+    void load(Path dir) throws IOException {
+        lock.trywrite(IOException.class, () -> {
+            ready = false;
+            var all = tags.load(dir.resolve(TAGS_FILE));
+            all &= text.load(dir.resolve(TEXT_FILE));
+            all &= date.load(dir.resolve(DATE_FILE));
+            all &= linkType.load(dir.resolve(LINKTYPE_FILE));
+            ready = all;
+        });
+    }
+}
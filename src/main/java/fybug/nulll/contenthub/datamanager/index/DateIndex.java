@@ -0,0 +1,491 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import fybug.nulll.pdconcurrent.SyLock;
+
+/**
+ * <h2>日期索引.</h2>
+ * <p>
+ * 在写入时将日期解析为毫秒时间戳，按照时间排序保存在 {@code long[]} 与对应的 id 数组中，
+ * 范围查询只需要二分查找起点后顺序读取，复杂度为 O(log n + k)
+ * <p>
+ * 新加入的记录先放入有序的增量区，移除的记录只在主数组中标记，增量区或标记过多时合并重建主数组<br/>
+ * 没有时区的日期按照 UTC 解析，查询条件使用相同的规则，所以不影响比较结果<br/>
+ * 范围查询可传入候选内容，候选很少时直接检查候选的日期，不需要读取整个范围
+ * <p>
+ * 快照只保存各内容的时间，读入时排序重建主数组
+ *
+ * @author fybug
+ * @version 0.0.5
+ * @see ContentIndex
+ */
+public final
+class DateIndex {
+    /** 增量区的最大数量 */
+    private static final int DELTA_MAX = 4096;
+    /** 无法解析的日期 */
+    public static final long NONE = Long.MIN_VALUE;
+    /** 快照文件标识 */
+    private static final int MAGIC = 0x43484454;
+    /** 快照版本 */
+    private static final int VERSION = 1;
+
+    /** 锁 */
+    private final SyLock lock = SyLock.newRWLock();
+    /** 内容 id -> 时间 */
+    private final IntLongMap dates = new IntLongMap();
+
+    /** 主数组的时间 */
+    private long[] keys = new long[0];
+    /** 主数组的 id */
+    private int[] ids = new int[0];
+    /** 主数组中已移除的 id */
+    private final IntBitmap dead = new IntBitmap();
+    /** 主数组中已移除的数量 */
+    private int deadCount = 0;
+
+    /** 增量区的时间 */
+    private long[] dkeys = new long[16];
+    /** 增量区的 id */
+    private int[] dids = new int[16];
+    /** 增量区的数量 */
+    private int dsize = 0;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 解析日期
+     * <p>
+     * 支持毫秒时间戳、{@code yyyy-MM-dd}、{@code yyyy-MM-dd HH:mm[:ss]}、ISO 本地时间与带时区的 ISO 时间
+     *
+     * @param date 日期
+     *
+     * @return 毫秒时间戳，为空或无法解析时为 {@link #NONE}
+     */
+    public static
+    long parse(String date) {
+        if (date == null || date.isBlank())
+            return NONE;
+        var s = date.trim();
+
+        try {
+            // 时间戳
+            if (s.chars().allMatch(c -> c >= '0' && c <= '9') && s.length() > 8)
+                return Long.parseLong(s);
+            if (s.length() <= 10)
+                return LocalDate.parse(s).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+
+            s = s.replace(' ', 'T');
+            if (s.endsWith("Z") || s.lastIndexOf('+') > 10 || s.lastIndexOf('-') > 10)
+                return OffsetDateTime.parse(s).toInstant().toEpochMilli();
+            return LocalDateTime.parse(s, DateTimeFormatter.ISO_LOCAL_DATE_TIME).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch ( DateTimeParseException | NumberFormatException e ) {
+            return NONE;
+        }
+    }
+
+    /**
+     * 解析作为结束时间的日期
+     * <p>
+     * 只有日期的值会解析为当天的最后一毫秒，其余与 {@link #parse(String)} 相同
+     *
+     * @param date 日期
+     *
+     * @return 毫秒时间戳，为空或无法解析时为 {@link #NONE}
+     */
+    public static
+    long parseEnd(String date) {
+        var r = parse(date);
+        if (r != NONE && date.trim().length() == 10 && date.trim().indexOf('-') > 0)
+            r += 86_400_000L - 1;
+        return r;
+    }
+
+    /**
+     * 格式化时间
+     *
+     * @param millis 毫秒时间戳
+     *
+     * @return ISO 格式的 UTC 时间
+     */
+    public static
+    String format(long millis) { return Instant.ofEpochMilli(millis).toString(); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 设置内容的日期
+     *
+     * @param id     内容 id
+     * @param millis 毫秒时间戳，{@link #NONE} 为移除
+     */
+    public
+    void put(int id, long millis) {
+        lock.write(() -> {
+            unlink(id);
+            if (millis == NONE)
+                return;
+
+            dates.put(id, millis);
+            insertDelta(millis, id);
+            if (dsize >= DELTA_MAX)
+                merge();
+        });
+    }
+
+    /**
+     * 设置内容的日期
+     *
+     * @param id   内容 id
+     * @param date 日期，无法解析时移除
+     */
+    public
+    void put(int id, String date) { put(id, parse(date)); }
+
+    /**
+     * 移除内容
+     *
+     * @param id 内容 id
+     */
+    public
+    void remove(int id) {
+        lock.write(() -> {
+            unlink(id);
+            if (deadCount > DELTA_MAX && deadCount > ids.length >> 2)
+                merge();
+        });
+    }
+
+    /** 清空索引 */
+    public
+    void clear() {
+        lock.write(() -> {
+            dates.clear();
+            keys = new long[0];
+            ids = new int[0];
+            dead.clear();
+            deadCount = 0;
+            dsize = 0;
+        });
+    }
+
+    /**
+     * 获取内容的日期
+     *
+     * @param id 内容 id
+     *
+     * @return 毫秒时间戳，没有记录为 {@link #NONE}
+     */
+    public
+    long get(int id) { return lock.read(() -> dates.get(id, NONE)); }
+
+    /** 已索引的内容数量 */
+    public
+    int size() { return lock.read(dates::size); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 范围查询
+     *
+     * @param from 起始时间，包含
+     * @param to   结束时间，包含
+     *
+     * @return 日期在范围内的内容 id
+     */
+    public
+    IntBitmap range(long from, long to) { return range(from, to, null); }
+
+    /**
+     * 在候选内容中范围查询
+     *
+     * @param from 起始时间，包含
+     * @param to   结束时间，包含
+     * @param in   候选内容，{@code null} 为全部内容
+     *
+     * @return 日期在范围内的内容 id
+     */
+    public
+    IntBitmap range(long from, long to, IntBitmap in) {
+        return lock.read(() -> {
+            var r = new IntBitmap();
+            if (from > to)
+                return r;
+
+            var lo = lower(keys, keys.length, from);
+            var hi = upper(keys, keys.length, to);
+            var dlo = lower(dkeys, dsize, from);
+            var dhi = upper(dkeys, dsize, to);
+            /* 候选很少时逐个检查日期 */
+            if (QueryPlan.probe(in, hi - lo + dhi - dlo)) {
+                in.forEach(id -> {
+                    var t = dates.get(id, NONE);
+                    if (t != NONE && t >= from && t <= to)
+                        r.add(id);
+                });
+                return r;
+            }
+
+            for ( int i = lo; i < hi; i++ )
+                if ((deadCount == 0 || !dead.contains(ids[i])) && (in == null || in.contains(ids[i])))
+                    r.add(ids[i]);
+            for ( int i = dlo; i < dhi; i++ )
+                if (in == null || in.contains(dids[i]))
+                    r.add(dids[i]);
+            return r;
+        });
+    }
+
+    /**
+     * 估算范围内的数量
+     *
+     * @param from 起始时间，包含
+     * @param to   结束时间，包含
+     *
+     * @return 数量，未扣除已移除的记录
+     */
+    public
+    int estimate(long from, long to) {
+        return lock.read(() -> {
+            if (from > to)
+                return 0;
+            return upper(keys, keys.length, to) - lower(keys, keys.length, from)
+                   + upper(dkeys, dsize, to) - lower(dkeys, dsize, from);
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 写出快照
+     * <p>
+     * 先写入临时文件再替换，写出中断不会损坏原有的快照
+     *
+     * @param path 快照文件路径
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void save(Path path) throws IOException {
+        lock.tryread(IOException.class, () -> IndexFile.write(path, MAGIC, VERSION, out -> {
+            var ks = new int[dates.size()];
+            var vs = new long[ks.length];
+            var n = new int[1];
+            dates.forEach((id, t) -> {
+                ks[n[0]] = id;
+                vs[n[0]++] = t;
+            });
+            out.writeInt(ks.length);
+            for ( int i = 0; i < ks.length; i++ ){
+                out.writeInt(ks[i]);
+                out.writeLong(vs[i]);
+            }
+        }));
+    }
+
+    /**
+     * 读入快照
+     * <p>
+     * 会替换当前的索引，快照不存在或为旧版本时清空索引
+     *
+     * @param path 快照文件路径
+     *
+     * @return 是否读入了快照
+     *
+     * @throws IOException 文件系统错误或快照损坏
+     */
+    public
+    boolean load(Path path) throws IOException {
+        var ks = new long[0];
+        var is = new int[0];
+
+        var file = IndexFile.open(path, MAGIC, VERSION);
+        if (file != null) {
+            try ( var in = file ) {
+                var n = in.readInt();
+                is = new int[n];
+                ks = new long[n];
+                for ( int i = 0; i < n; i++ ){
+                    is[i] = in.readInt();
+                    ks[i] = in.readLong();
+                }
+            }
+        }
+
+        /* 按照时间与 id 排序 */
+        var order = new Integer[is.length];
+        for ( int i = 0; i < order.length; i++ )
+            order[i] = i;
+        var fk = ks;
+        var fi = is;
+        Arrays.sort(order, (a, b) -> compare(fk[a], fi[a], fk[b], fi[b]));
+        var nk = new long[order.length];
+        var ni = new int[order.length];
+        for ( int i = 0; i < order.length; i++ ){
+            nk[i] = fk[order[i]];
+            ni[i] = fi[order[i]];
+        }
+
+        lock.write(() -> {
+            dates.clear();
+            for ( int i = 0; i < ni.length; i++ )
+                dates.put(ni[i], nk[i]);
+            keys = nk;
+            ids = ni;
+            dead.clear();
+            deadCount = 0;
+            dsize = 0;
+        });
+        return file != null;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 移除内容的记录
+     *
+     * @param id 内容 id
+     */
+    private
+    void unlink(int id) {
+        var old = dates.remove(id, NONE);
+        if (old == NONE)
+            return;
+
+        /* 优先在增量区中移除 */
+        var i = find(dkeys, dids, dsize, old, id);
+        if (i >= 0) {
+            System.arraycopy(dkeys, i + 1, dkeys, i, dsize - i - 1);
+            System.arraycopy(dids, i + 1, dids, i, dsize - i - 1);
+            dsize--;
+        } else if (dead.add(id))
+            deadCount++;
+    }
+
+    /** 加入增量区 */
+    private
+    void insertDelta(long key, int id) {
+        var i = find(dkeys, dids, dsize, key, id);
+        if (i >= 0)
+            return;
+        i = -i - 1;
+        if (dsize == dkeys.length) {
+            dkeys = Arrays.copyOf(dkeys, dsize << 1);
+            dids = Arrays.copyOf(dids, dsize << 1);
+        }
+        System.arraycopy(dkeys, i, dkeys, i + 1, dsize - i);
+        System.arraycopy(dids, i, dids, i + 1, dsize - i);
+        dkeys[i] = key;
+        dids[i] = id;
+        dsize++;
+    }
+
+    /** 合并增量区并清除已移除的记录 */
+    private
+    void merge() {
+        var n = ids.length - deadCount + dsize;
+        var nk = new long[n];
+        var ni = new int[n];
+        int i = 0, j = 0, k = 0;
+        while( i < ids.length || j < dsize ){
+            if (i < ids.length && deadCount > 0 && dead.contains(ids[i])) {
+                i++;
+                continue;
+            }
+            if (j == dsize || (i < ids.length && compare(keys[i], ids[i], dkeys[j], dids[j]) < 0)) {
+                nk[k] = keys[i];
+                ni[k++] = ids[i++];
+            } else {
+                nk[k] = dkeys[j];
+                ni[k++] = dids[j++];
+            }
+        }
+
+        keys = k == n ? nk : Arrays.copyOf(nk, k);
+        ids = k == n ? ni : Arrays.copyOf(ni, k);
+        dead.clear();
+        deadCount = 0;
+        dsize = 0;
+    }
+
+    /**
+     * 查找第一个不小于指定时间的下标
+     *
+     * @param arr  有序的时间
+     * @param size 数量
+     * @param key  时间
+     *
+     * @return 下标
+     */
+    private static
+    int lower(long[] arr, int size, long key) {
+        int lo = 0, hi = size;
+        while( lo < hi ){
+            var mid = (lo + hi) >>> 1;
+            if (arr[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * 查找第一个大于指定时间的下标
+     *
+     * @param arr  有序的时间
+     * @param size 数量
+     * @param key  时间
+     *
+     * @return 下标
+     */
+    private static
+    int upper(long[] arr, int size, long key) {
+        int lo = 0, hi = size;
+        while( lo < hi ){
+            var mid = (lo + hi) >>> 1;
+            if (arr[mid] <= key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * 按照时间与 id 查找记录
+     *
+     * @return 下标，不存在为 {@code -(插入位置) - 1}
+     */
+    private static
+    int find(long[] ks, int[] is, int size, long key, int id) {
+        int lo = 0, hi = size - 1;
+        while( lo <= hi ){
+            var mid = (lo + hi) >>> 1;
+            var c = compare(ks[mid], is[mid], key, id);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -lo - 1;
+    }
+
+    /** 按照时间与 id 比较 */
+    private static
+    int compare(long k1, int i1, long k2, int i2) {
+        var c = Long.compare(k1, k2);
+        return c != 0 ? c : Integer.compare(i1, i2);
+    }
+}
@@ -0,0 +1,100 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <h2>索引快照文件.</h2>
+ * <p>
+ * 快照以文件标识与版本开头，写出时先写入临时文件并同步到磁盘再替换，写出中断不会损坏原有的快照<br/>
+ * 版本不同的快照视为不存在，由调用者重建索引
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see ContentIndex
+ */
+final
+class IndexFile {
+    private
+    IndexFile() {}
+
+    /**
+     * <h2>快照内容写出接口.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @FunctionalInterface
+    interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 写出快照
+     *
+     * @param path    快照文件路径
+     * @param magic   文件标识
+     * @param version 快照版本
+     * @param body    写出快照内容
+     *
+     * @throws IOException 文件系统错误
+     */
+    static
+    void write(Path path, int magic, int version, Writer body) throws IOException {
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try ( var ch = FileChannel.open(tmp, WRITE, CREATE, TRUNCATE_EXISTING);
+              var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch))) )
+        {
+            out.writeInt(magic);
+            out.writeInt(version);
+            body.write(out);
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    /**
+     * 打开快照
+     *
+     * @param path    快照文件路径
+     * @param magic   文件标识
+     * @param version 快照版本
+     *
+     * @return 位于快照内容开头的数据流，快照不存在或版本不同时为 {@code null}
+     *
+     * @throws IOException 文件系统错误或文件标识不匹配
+     */
+    static
+    DataInputStream open(Path path, int magic, int version) throws IOException {
+        if (!Files.exists(path))
+            return null;
+        var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        try {
+            if (in.readInt() != magic)
+                throw new IOException("bad index snapshot: " + path);
+            if (in.readInt() != version) {
+                in.close();
+                return null;
+            }
+        } catch ( IOException e ) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+}
@@ -0,0 +1,605 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <h2>压缩整数位图.</h2>
+ * <p>
+ * 按照高 16 位将整数分块，每块使用一个容器保存低 16 位<br/>
+ * 块内数量不超过 {@value #ARRAY_MAX} 时使用有序的 {@code char} 数组，超出后转为 8KB 的位图，
+ * 稀疏与稠密的 id 集合都只占用较少的内存
+ * <p>
+ * 值按照无符号顺序排列，本对象不处理并发
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+public final
+class IntBitmap {
+    /** 数组容器的最大数量 */
+    private static final int ARRAY_MAX = 4096;
+    /** 位图容器的字数 */
+    private static final int WORDS = 1024;
+
+    /** 容器的块号 */
+    private char[] keys;
+    /** 容器 */
+    private Container[] cons;
+    /** 容器数量 */
+    private int size = 0;
+
+    /** 构造空位图 */
+    public
+    IntBitmap() { this(4); }
+
+    private
+    IntBitmap(int cap) {
+        keys = new char[cap];
+        cons = new Container[cap];
+    }
+
+    /**
+     * 使用指定的值构造位图
+     *
+     * @param values 值
+     *
+     * @return 位图
+     */
+    public static
+    IntBitmap of(int... values) {
+        var b = new IntBitmap();
+        for ( int v : values )
+            b.add(v);
+        return b;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 加入值
+     *
+     * @param v 值
+     *
+     * @return 是否为新加入的值
+     */
+    public
+    boolean add(int v) {
+        var hi = (char) (v >>> 16);
+        var i = find(hi);
+        if (i < 0) {
+            i = -i - 1;
+            insert(i, hi, new Container());
+        }
+        return cons[i].add((char) v);
+    }
+
+    /**
+     * 移除值
+     *
+     * @param v 值
+     *
+     * @return 是否存在该值
+     */
+    public
+    boolean remove(int v) {
+        var i = find((char) (v >>> 16));
+        if (i < 0 || !cons[i].remove((char) v))
+            return false;
+        if (cons[i].card == 0)
+            delete(i);
+        return true;
+    }
+
+    /**
+     * 是否包含值
+     *
+     * @param v 值
+     *
+     * @return 是否包含
+     */
+    public
+    boolean contains(int v) {
+        var i = find((char) (v >>> 16));
+        return i >= 0 && cons[i].contains((char) v);
+    }
+
+    /** 值的数量 */
+    public
+    int cardinality() {
+        var n = 0;
+        for ( int i = 0; i < size; i++ )
+            n += cons[i].card;
+        return n;
+    }
+
+    /** 移除所有的值 */
+    public
+    void clear() {
+        Arrays.fill(cons, 0, size, null);
+        size = 0;
+    }
+
+    /** 是否为空 */
+    public
+    boolean isEmpty() { return size == 0; }
+
+    /**
+     * 按照顺序遍历所有的值
+     *
+     * @param v 值接收接口
+     */
+    public
+    void forEach(IntConsumer v) {
+        for ( int i = 0; i < size; i++ )
+            cons[i].forEach(keys[i] << 16, v);
+    }
+
+    /**
+     * 获取所有的值
+     *
+     * @return 按照顺序排列的值
+     */
+    public
+    int[] toArray() {
+        var arr = new int[cardinality()];
+        var n = new int[1];
+        forEach(v -> arr[n[0]++] = v);
+        return arr;
+    }
+
+    /**
+     * 复制位图
+     *
+     * @return 新的位图
+     */
+    public
+    IntBitmap copy() {
+        var b = new IntBitmap(Math.max(4, size));
+        for ( int i = 0; i < size; i++ ){
+            b.keys[i] = keys[i];
+            b.cons[i] = cons[i].copy();
+        }
+        b.size = size;
+        return b;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 交集
+     *
+     * @param a 位图
+     * @param b 位图
+     *
+     * @return 新的位图
+     */
+    public static
+    IntBitmap and(IntBitmap a, IntBitmap b) {
+        var r = new IntBitmap(Math.max(4, Math.min(a.size, b.size)));
+        int i = 0, j = 0;
+        while( i < a.size && j < b.size ){
+            if (a.keys[i] < b.keys[j])
+                i++;
+            else if (a.keys[i] > b.keys[j])
+                j++;
+            else {
+                r.append(a.keys[i], Container.and(a.cons[i], b.cons[j]));
+                i++;
+                j++;
+            }
+        }
+        return r;
+    }
+
+    /**
+     * 并集
+     *
+     * @param a 位图
+     * @param b 位图
+     *
+     * @return 新的位图
+     */
+    public static
+    IntBitmap or(IntBitmap a, IntBitmap b) {
+        var r = new IntBitmap(Math.max(4, a.size + b.size));
+        int i = 0, j = 0;
+        while( i < a.size || j < b.size ){
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j]))
+                r.append(a.keys[i], a.cons[i++].copy());
+            else if (i == a.size || a.keys[i] > b.keys[j])
+                r.append(b.keys[j], b.cons[j++].copy());
+            else
+                r.append(a.keys[i], Container.or(a.cons[i++], b.cons[j++]));
+        }
+        return r;
+    }
+
+    /**
+     * 差集
+     *
+     * @param a 位图
+     * @param b 要排除的位图
+     *
+     * @return 在 {@code a} 中但不在 {@code b} 中的值
+     */
+    public static
+    IntBitmap andNot(IntBitmap a, IntBitmap b) {
+        var r = new IntBitmap(Math.max(4, a.size));
+        int j = 0;
+        for ( int i = 0; i < a.size; i++ ){
+            while( j < b.size && b.keys[j] < a.keys[i] )
+                j++;
+            if (j < b.size && b.keys[j] == a.keys[i])
+                r.append(a.keys[i], Container.andNot(a.cons[i], b.cons[j]));
+            else
+                r.append(a.keys[i], a.cons[i].copy());
+        }
+        return r;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 写出位图
+     *
+     * @param out 输出
+     *
+     * @throws IOException 写出错误
+     */
+    public
+    void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for ( int i = 0; i < size; i++ ){
+            var c = cons[i];
+            out.writeChar(keys[i]);
+            out.writeInt(c.card);
+            if (c.bits == null) {
+                for ( int k = 0; k < c.card; k++ )
+                    out.writeChar(c.arr[k]);
+            } else {
+                for ( long w : c.bits )
+                    out.writeLong(w);
+            }
+        }
+    }
+
+    /**
+     * 读取位图
+     *
+     * @param in 输入
+     *
+     * @return 位图
+     *
+     * @throws IOException 读取错误或数据损坏
+     */
+    public static
+    IntBitmap read(DataInput in) throws IOException {
+        var n = in.readInt();
+        if (n < 0 || n > 0x10000)
+            throw new IOException("bad bitmap size: " + n);
+
+        var b = new IntBitmap(Math.max(4, n));
+        for ( int i = 0; i < n; i++ ){
+            var key = in.readChar();
+            var card = in.readInt();
+            if (card <= 0 || card > 0x10000 || (i > 0 && key <= b.keys[i - 1]))
+                throw new IOException("bad bitmap container");
+
+            var c = new Container();
+            if (card <= ARRAY_MAX) {
+                c.arr = new char[card];
+                for ( int k = 0; k < card; k++ )
+                    c.arr[k] = in.readChar();
+            } else {
+                c.arr = null;
+                c.bits = new long[WORDS];
+                for ( int k = 0; k < WORDS; k++ )
+                    c.bits[k] = in.readLong();
+            }
+            c.card = card;
+            b.append(key, c);
+        }
+        return b;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    boolean equals(Object o) {
+        if (!(o instanceof IntBitmap))
+            return false;
+        var b = (IntBitmap) o;
+        return cardinality() == b.cardinality() && Arrays.equals(toArray(), b.toArray());
+    }
+
+    @Override
+    public
+    int hashCode() { return Arrays.hashCode(toArray()); }
+
+    @Override
+    public
+    String toString() { return Arrays.toString(toArray()); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 查找块
+     *
+     * @param key 块号
+     *
+     * @return 下标，不存在为 {@code -(插入位置) - 1}
+     */
+    private
+    int find(char key) { return Arrays.binarySearch(keys, 0, size, key); }
+
+    /** 在指定位置插入块 */
+    private
+    void insert(int i, char key, Container c) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            cons = Arrays.copyOf(cons, size << 1);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(cons, i, cons, i + 1, size - i);
+        keys[i] = key;
+        cons[i] = c;
+        size++;
+    }
+
+    /** 在末尾追加块，空的容器会被忽略 */
+    private
+    void append(char key, Container c) {
+        if (c == null || c.card == 0)
+            return;
+        insert(size, key, c);
+    }
+
+    /** 删除指定位置的块 */
+    private
+    void delete(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(cons, i + 1, cons, i, size - i - 1);
+        cons[--size] = null;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>块容器.</h2>
+     * <p>
+     * {@link #bits} 为 {@code null} 时使用有序数组，否则使用位图
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class Container {
+        /** 有序数组 */
+        char[] arr = new char[4];
+        /** 位图 */
+        long[] bits;
+        /** 数量 */
+        int card;
+
+        boolean contains(char x) {
+            if (bits != null)
+                return (bits[x >>> 6] & (1L << x)) != 0;
+            return Arrays.binarySearch(arr, 0, card, x) >= 0;
+        }
+
+        boolean add(char x) {
+            if (bits != null) {
+                var w = x >>> 6;
+                var m = 1L << x;
+                if ((bits[w] & m) != 0)
+                    return false;
+                bits[w] |= m;
+                card++;
+                return true;
+            }
+
+            var i = Arrays.binarySearch(arr, 0, card, x);
+            if (i >= 0)
+                return false;
+            // 转为位图
+            if (card == ARRAY_MAX) {
+                toBits();
+                return add(x);
+            }
+            i = -i - 1;
+            if (card == arr.length)
+                arr = Arrays.copyOf(arr, Math.min(ARRAY_MAX, card << 1));
+            System.arraycopy(arr, i, arr, i + 1, card - i);
+            arr[i] = x;
+            card++;
+            return true;
+        }
+
+        boolean remove(char x) {
+            if (bits != null) {
+                var w = x >>> 6;
+                var m = 1L << x;
+                if ((bits[w] & m) == 0)
+                    return false;
+                bits[w] &= ~m;
+                if (--card <= ARRAY_MAX)
+                    toArr();
+                return true;
+            }
+
+            var i = Arrays.binarySearch(arr, 0, card, x);
+            if (i < 0)
+                return false;
+            System.arraycopy(arr, i + 1, arr, i, card - i - 1);
+            card--;
+            return true;
+        }
+
+        void forEach(int base, IntConsumer v) {
+            if (bits == null) {
+                for ( int i = 0; i < card; i++ )
+                    v.accept(base | arr[i]);
+                return;
+            }
+            for ( int w = 0; w < WORDS; w++ ){
+                var word = bits[w];
+                while( word != 0 ){
+                    v.accept(base | (w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        Container copy() {
+            var c = new Container();
+            c.card = card;
+            if (bits == null)
+                c.arr = Arrays.copyOf(arr, Math.max(4, card));
+            else {
+                c.arr = null;
+                c.bits = bits.clone();
+            }
+            return c;
+        }
+
+        /** 转为位图 */
+        private
+        void toBits() {
+            var b = new long[WORDS];
+            for ( int i = 0; i < card; i++ )
+                b[arr[i] >>> 6] |= 1L << arr[i];
+            bits = b;
+            arr = null;
+        }
+
+        /** 转为有序数组 */
+        private
+        void toArr() {
+            var a = new char[Math.max(4, card)];
+            var n = 0;
+            for ( int w = 0; w < WORDS; w++ ){
+                var word = bits[w];
+                while( word != 0 ){
+                    a[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            arr = a;
+            bits = null;
+        }
+
+        /*----------------------------------------------------------------------------------------*/
+
+        /** 使用位图构造容器，数量较少时转为数组 */
+        private static
+        Container ofBits(long[] bits) {
+            var c = new Container();
+            c.arr = null;
+            c.bits = bits;
+            for ( long w : bits )
+                c.card += Long.bitCount(w);
+            if (c.card <= ARRAY_MAX)
+                c.toArr();
+            return c;
+        }
+
+        /** 使用数组构造容器 */
+        private static
+        Container ofArr(char[] arr, int card) {
+            var c = new Container();
+            c.arr = arr;
+            c.card = card;
+            return c;
+        }
+
+        /** 获取位图形式，数组容器会生成新的位图 */
+        private
+        long[] bitsCopy() {
+            if (bits != null)
+                return bits.clone();
+            var b = new long[WORDS];
+            for ( int i = 0; i < card; i++ )
+                b[arr[i] >>> 6] |= 1L << arr[i];
+            return b;
+        }
+
+        static
+        Container and(Container a, Container b) {
+            if (a.bits != null && b.bits != null) {
+                var r = new long[WORDS];
+                for ( int i = 0; i < WORDS; i++ )
+                    r[i] = a.bits[i] & b.bits[i];
+                return ofBits(r);
+            }
+
+            // 遍历数组容器
+            if (a.bits != null || (b.bits == null && b.card < a.card)) {
+                var t = a;
+                a = b;
+                b = t;
+            }
+            var r = new char[Math.max(4, a.card)];
+            var n = 0;
+            for ( int i = 0; i < a.card; i++ )
+                if (b.contains(a.arr[i]))
+                    r[n++] = a.arr[i];
+            return ofArr(r, n);
+        }
+
+        static
+        Container or(Container a, Container b) {
+            if (a.bits == null && b.bits == null && a.card + b.card <= ARRAY_MAX) {
+                // 合并有序数组
+                var r = new char[Math.max(4, a.card + b.card)];
+                int i = 0, j = 0, n = 0;
+                while( i < a.card || j < b.card ){
+                    if (j == b.card || (i < a.card && a.arr[i] < b.arr[j]))
+                        r[n++] = a.arr[i++];
+                    else if (i == a.card || a.arr[i] > b.arr[j])
+                        r[n++] = b.arr[j++];
+                    else {
+                        r[n++] = a.arr[i++];
+                        j++;
+                    }
+                }
+                return ofArr(r, n);
+            }
+
+            var r = a.bitsCopy();
+            if (b.bits != null) {
+                for ( int i = 0; i < WORDS; i++ )
+                    r[i] |= b.bits[i];
+            } else {
+                for ( int i = 0; i < b.card; i++ )
+                    r[b.arr[i] >>> 6] |= 1L << b.arr[i];
+            }
+            return ofBits(r);
+        }
+
+        static
+        Container andNot(Container a, Container b) {
+            if (a.bits == null) {
+                var r = new char[Math.max(4, a.card)];
+                var n = 0;
+                for ( int i = 0; i < a.card; i++ )
+                    if (!b.contains(a.arr[i]))
+                        r[n++] = a.arr[i];
+                return ofArr(r, n);
+            }
+
+            var r = a.bits.clone();
+            if (b.bits != null) {
+                for ( int i = 0; i < WORDS; i++ )
+                    r[i] &= ~b.bits[i];
+            } else {
+                for ( int i = 0; i < b.card; i++ )
+                    r[b.arr[i] >>> 6] &= ~(1L << b.arr[i]);
+            }
+            return ofBits(r);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.util.Arrays;
+
+/**
+ * <h2>int 键 long 值映射.</h2>
+ * <p>
+ * 与 {@link IntMap} 相同使用开放寻址与线性探测，值直接保存在 {@code long[]} 中，读写都不需要装箱<br/>
+ * 空位使用单独的标记数组，键与值可以为任意值
+ * <p>
+ * 非线程安全，需要由调用者加锁
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see IntMap
+ */
+public final
+class IntLongMap {
+    /** 键 */
+    private int[] keys;
+    /** 值 */
+    private long[] vals;
+    /** 位置是否有条目 */
+    private boolean[] used;
+    /** 数量 */
+    private int size = 0;
+
+    public
+    IntLongMap() { this(8); }
+
+    /** @param expected 预计的数量 */
+    public
+    IntLongMap(int expected) { alloc(IntMap.capacity(expected)); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>条目遍历接口.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @FunctionalInterface
+    public
+    interface Visitor {
+        void accept(int key, long value);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取值
+     *
+     * @param key 键
+     * @param def 不存在时返回的值
+     *
+     * @return 值
+     */
+    public
+    long get(int key, long def) {
+        var i = find(key);
+        return i < 0 ? def : vals[i];
+    }
+
+    /** 是否有该键 */
+    public
+    boolean containsKey(int key) { return find(key) >= 0; }
+
+    /**
+     * 放入值
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public
+    void put(int key, long value) {
+        var i = slot(key);
+        while( used[i] ){
+            if (keys[i] == key) {
+                vals[i] = value;
+                return;
+            }
+            i = (i + 1) & (keys.length - 1);
+        }
+        keys[i] = key;
+        vals[i] = value;
+        used[i] = true;
+        if (++size > keys.length * 3 / 4)
+            alloc(keys.length << 1);
+    }
+
+    /**
+     * 移除值
+     *
+     * @param key 键
+     * @param def 不存在时返回的值
+     *
+     * @return 原有的值
+     */
+    public
+    long remove(int key, long def) {
+        var i = find(key);
+        if (i < 0)
+            return def;
+        var old = vals[i];
+        shift(i);
+        size--;
+        return old;
+    }
+
+    /**
+     * 遍历条目
+     * <p>
+     * 遍历中不能修改映射
+     *
+     * @param v 条目遍历接口
+     */
+    public
+    void forEach(Visitor v) {
+        for ( int i = 0; i < keys.length; i++ )
+            if (used[i])
+                v.accept(keys[i], vals[i]);
+    }
+
+    /** 数量 */
+    public
+    int size() { return size; }
+
+    /** 是否为空 */
+    public
+    boolean isEmpty() { return size == 0; }
+
+    /** 清空映射 */
+    public
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 打散 int 键
+     *
+     * @param key 键
+     *
+     * @return 散列值
+     */
+    static
+    int mix(int key) {
+        var h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** 查找键的位置，不存在为 {@code -1} */
+    private
+    int find(int key) {
+        var i = slot(key);
+        while( used[i] ){
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    /** 键的初始位置 */
+    private
+    int slot(int key) { return mix(key) & (keys.length - 1); }
+
+    /** 移除位置上的条目并前移后面的条目 */
+    private
+    void shift(int i) {
+        var mask = keys.length - 1;
+        var j = i;
+        while( true ){
+            j = (j + 1) & mask;
+            if (!used[j])
+                break;
+            var h = slot(keys[j]);
+            // 初始位置不在 (i, j] 之间的条目可以前移
+            if (i <= j ? (h <= i || h > j) : (h <= i && h > j)) {
+                keys[i] = keys[j];
+                vals[i] = vals[j];
+                i = j;
+            }
+        }
+        used[i] = false;
+    }
+
+    /** 重新分配空间 */
+    private
+    void alloc(int capacity) {
+        var ok = keys;
+        var ov = vals;
+        var ou = used;
+        keys = new int[capacity];
+        vals = new long[capacity];
+        used = new boolean[capacity];
+        if (ok == null)
+            return;
+
+        for ( int i = 0; i < ok.length; i++ ){
+            if (!ou[i])
+                continue;
+            var s = slot(ok[i]);
+            while( used[s] )
+                s = (s + 1) & (capacity - 1);
+            keys[s] = ok[i];
+            vals[s] = ov[i];
+            used[s] = true;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * <h2>int 键映射.</h2>
+ * <p>
+ * 使用开放寻址与线性探测保存在 {@code int[]} 与 {@code Object[]} 中，读写键不需要装箱，也没有条目对象<br/>
+ * 移除时将后面的条目前移，不留下墓碑，不接受 {@code null} 值
+ * <p>
+ * 非线程安全，需要由调用者加锁
+ *
+ * @param <V> 值类型
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see IntLongMap
+ */
+public final
+class IntMap<V> {
+    /** 最小容量 */
+    private static final int MIN_CAPACITY = 8;
+
+    /** 键 */
+    private int[] keys;
+    /** 值，{@code null} 为空位 */
+    private Object[] vals;
+    /** 数量 */
+    private int size = 0;
+
+    public
+    IntMap() { this(MIN_CAPACITY); }
+
+    /** @param expected 预计的数量 */
+    public
+    IntMap(int expected) { alloc(capacity(expected)); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>条目遍历接口.</h2>
+     *
+     * @param <V> 值类型
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @FunctionalInterface
+    public
+    interface Visitor<V> {
+        void accept(int key, V value);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取值
+     *
+     * @param key 键
+     *
+     * @return 值，不存在为 {@code null}
+     */
+    @SuppressWarnings( "unchecked" )
+    public
+    V get(int key) {
+        var i = find(key);
+        return i < 0 ? null : (V) vals[i];
+    }
+
+    /** 是否有该键 */
+    public
+    boolean containsKey(int key) { return find(key) >= 0; }
+
+    /**
+     * 放入值
+     *
+     * @param key   键
+     * @param value 值
+     *
+     * @return 原有的值，不存在为 {@code null}
+     */
+    @SuppressWarnings( "unchecked" )
+    public
+    V put(int key, V value) {
+        if (value == null)
+            throw new NullPointerException("value");
+
+        var i = slot(key);
+        while( vals[i] != null ){
+            if (keys[i] == key) {
+                var old = (V) vals[i];
+                vals[i] = value;
+                return old;
+            }
+            i = (i + 1) & (keys.length - 1);
+        }
+        keys[i] = key;
+        vals[i] = value;
+        if (++size > keys.length * 3 / 4)
+            alloc(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * 获取值，不存在时生成并放入
+     *
+     * @param key     键
+     * @param created 生成值
+     *
+     * @return 值
+     */
+    public
+    V computeIfAbsent(int key, IntFunction<V> created) {
+        var v = get(key);
+        if (v == null) {
+            v = created.apply(key);
+            put(key, v);
+        }
+        return v;
+    }
+
+    /**
+     * 移除值
+     *
+     * @param key 键
+     *
+     * @return 原有的值，不存在为 {@code null}
+     */
+    @SuppressWarnings( "unchecked" )
+    public
+    V remove(int key) {
+        var i = find(key);
+        if (i < 0)
+            return null;
+        var old = (V) vals[i];
+        shift(i);
+        size--;
+        return old;
+    }
+
+    /**
+     * 遍历条目
+     * <p>
+     * 遍历中不能修改映射
+     *
+     * @param v 条目遍历接口
+     */
+    @SuppressWarnings( "unchecked" )
+    public
+    void forEach(Visitor<? super V> v) {
+        for ( int i = 0; i < keys.length; i++ )
+            if (vals[i] != null)
+                v.accept(keys[i], (V) vals[i]);
+    }
+
+    /** 数量 */
+    public
+    int size() { return size; }
+
+    /** 是否为空 */
+    public
+    boolean isEmpty() { return size == 0; }
+
+    /** 清空映射 */
+    public
+    void clear() {
+        Arrays.fill(vals, null);
+        size = 0;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /** 查找键的位置，不存在为 {@code -1} */
+    private
+    int find(int key) {
+        var i = slot(key);
+        while( vals[i] != null ){
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    /** 键的初始位置 */
+    private
+    int slot(int key) { return IntLongMap.mix(key) & (keys.length - 1); }
+
+    /** 移除位置上的条目并前移后面的条目 */
+    private
+    void shift(int i) {
+        var mask = keys.length - 1;
+        var j = i;
+        while( true ){
+            j = (j + 1) & mask;
+            if (vals[j] == null)
+                break;
+            var h = slot(keys[j]);
+            // 初始位置不在 (i, j] 之间的条目可以前移
+            if (i <= j ? (h <= i || h > j) : (h <= i && h > j)) {
+                keys[i] = keys[j];
+                vals[i] = vals[j];
+                i = j;
+            }
+        }
+        vals[i] = null;
+    }
+
+    /** 重新分配空间 */
+    private
+    void alloc(int capacity) {
+        var ok = keys;
+        var ov = vals;
+        keys = new int[capacity];
+        vals = new Object[capacity];
+        if (ok == null)
+            return;
+
+        for ( int i = 0; i < ok.length; i++ ){
+            if (ov[i] == null)
+                continue;
+            var s = slot(ok[i]);
+            while( vals[s] != null )
+                s = (s + 1) & (capacity - 1);
+            keys[s] = ok[i];
+            vals[s] = ov[i];
+        }
+    }
+
+    /** 能放下指定数量的容量 */
+    static
+    int capacity(int expected) {
+        var need = Math.max(MIN_CAPACITY, (int) Math.min(1 << 30, expected * 4L / 3 + 1));
+        return Integer.highestOneBit(need - 1) << 1;
+    }
+}
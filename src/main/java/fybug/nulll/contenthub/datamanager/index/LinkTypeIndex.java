@@ -0,0 +1,252 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import fybug.nulll.pdconcurrent.SyLock;
+
+/**
+ * <h2>处理类型索引.</h2>
+ * <p>
+ * 为每个处理类型保存该类型的内容 id 位图，类型数量很少，按照类型查询只需要合并对应的位图<br/>
+ * 同时可直接取得各类型的内容数量，不需要扫描全部内容
+ * <p>
+ * 查询返回的位图为副本，可以自由修改，查询可传入候选内容，只在候选中筛选<br/>
+ * 快照只保存各内容的类型，读入时重建各类型的位图
+ *
+ * @author fybug
+ * @version 0.0.5
+ * @see ContentIndex
+ * @see fybug.nulll.contenthub.datamanager.content.linktype.LinkTypeManager
+ */
+public final
+class LinkTypeIndex {
+    /** 快照文件标识 */
+    private static final int MAGIC = 0x43484c54;
+    /** 快照版本 */
+    private static final int VERSION = 1;
+    /** 锁 */
+    private final SyLock lock = SyLock.newRWLock();
+    /** 类型 -> 内容 id */
+    private final IntMap<IntBitmap> postings = new IntMap<>();
+    /** 内容 id -> 类型 */
+    private final IntLongMap forward = new IntLongMap();
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 设置内容的类型
+     * <p>
+     * 会替换该内容原有的类型
+     *
+     * @param id   内容 id
+     * @param type 类型 id
+     */
+    public
+    void put(int id, int type) {
+        lock.write(() -> {
+            unlink(id);
+            postings.computeIfAbsent(type, k -> new IntBitmap()).add(id);
+            forward.put(id, type);
+        });
+    }
+
+    /**
+     * 移除内容
+     *
+     * @param id 内容 id
+     */
+    public
+    void remove(int id) { lock.write(() -> unlink(id)); }
+
+    /** 清空索引 */
+    public
+    void clear() {
+        lock.write(() -> {
+            postings.clear();
+            forward.clear();
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 查询属于其中一个类型的内容
+     *
+     * @param types 类型 id 组
+     *
+     * @return 内容 id
+     */
+    public
+    IntBitmap of(int... types) { return of(types, null); }
+
+    /**
+     * 在候选内容中查询属于其中一个类型的内容
+     *
+     * @param types 类型 id 组
+     * @param in    候选内容，{@code null} 为全部内容
+     *
+     * @return 内容 id
+     */
+    public
+    IntBitmap of(int[] types, IntBitmap in) {
+        return lock.read(() -> {
+            var r = new IntBitmap();
+            /* 候选很少时逐个检查类型 */
+            if (QueryPlan.probe(in, forward.size())) {
+                var hit = r;
+                in.forEach(id -> {
+                    var t = (int) forward.get(id, -1);
+                    if (t != -1)
+                        for ( int type : types )
+                            if (type == t) {
+                                hit.add(id);
+                                return;
+                            }
+                });
+                return hit;
+            }
+
+            for ( int type : types ){
+                var b = postings.get(type);
+                if (b != null)
+                    r = IntBitmap.or(r, in == null ? b : IntBitmap.and(in, b));
+            }
+            return r;
+        });
+    }
+
+    /**
+     * 获取内容的类型
+     *
+     * @param id 内容 id
+     *
+     * @return 类型 id ，没有记录为 {@code -1}
+     */
+    public
+    int typeOf(int id) { return lock.read(() -> (int) forward.get(id, -1)); }
+
+    /**
+     * 获取类型的内容数量
+     *
+     * @param type 类型 id
+     *
+     * @return 数量
+     */
+    public
+    int count(int type) {
+        return lock.read(() -> {
+            var b = postings.get(type);
+            return b == null ? 0 : b.cardinality();
+        });
+    }
+
+    /**
+     * 获取各类型的内容数量
+     *
+     * @return 类型 id -> 数量，按照类型 id 排列
+     */
+    public
+    Map<Integer, Integer> counts() {
+        return lock.read(() -> {
+            var r = new TreeMap<Integer, Integer>();
+            postings.forEach((k, v) -> r.put(k, v.cardinality()));
+            return r;
+        });
+    }
+
+    /** 已索引的内容数量 */
+    public
+    int size() { return lock.read(forward::size); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 写出快照
+     * <p>
+     * 先写入临时文件再替换，写出中断不会损坏原有的快照
+     *
+     * @param path 快照文件路径
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void save(Path path) throws IOException {
+        lock.tryread(IOException.class, () -> IndexFile.write(path, MAGIC, VERSION, out -> {
+            var ks = new int[forward.size()];
+            var vs = new int[ks.length];
+            var n = new int[1];
+            forward.forEach((id, type) -> {
+                ks[n[0]] = id;
+                vs[n[0]++] = (int) type;
+            });
+            out.writeInt(ks.length);
+            for ( int i = 0; i < ks.length; i++ ){
+                out.writeInt(ks[i]);
+                out.writeInt(vs[i]);
+            }
+        }));
+    }
+
+    /**
+     * 读入快照
+     * <p>
+     * 会替换当前的索引，快照不存在或为旧版本时清空索引
+     *
+     * @param path 快照文件路径
+     *
+     * @return 是否读入了快照
+     *
+     * @throws IOException 文件系统错误或快照损坏
+     */
+    public
+    boolean load(Path path) throws IOException {
+        var ks = new int[0];
+        var vs = new int[0];
+
+        var file = IndexFile.open(path, MAGIC, VERSION);
+        if (file != null) {
+            try ( var in = file ) {
+                var n = in.readInt();
+                ks = new int[n];
+                vs = new int[n];
+                for ( int i = 0; i < n; i++ ){
+                    ks[i] = in.readInt();
+                    vs[i] = in.readInt();
+                }
+            }
+        }
+
+        var nowKs = ks;
+        var nowVs = vs;
+        lock.write(() -> {
+            postings.clear();
+            forward.clear();
+            for ( int i = 0; i < nowKs.length; i++ ){
+                postings.computeIfAbsent(nowVs[i], k -> new IntBitmap()).add(nowKs[i]);
+                forward.put(nowKs[i], nowVs[i]);
+            }
+        });
+        return file != null;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 移除内容的类型记录
+     *
+     * @param id 内容 id
+     */
+    private
+    void unlink(int id) {
+        var old = (int) forward.remove(id, -1);
+        if (old == -1)
+            return;
+
+        var b = postings.get(old);
+        b.remove(id);
+        if (b.isEmpty())
+            postings.remove(old);
+    }
+}
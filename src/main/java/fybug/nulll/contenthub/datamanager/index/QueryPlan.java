@@ -0,0 +1,299 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * <h2>查询计划.</h2>
+ * <p>
+ * 将查询条件拆分为多个阶段，每个阶段带有根据索引统计得到的结果数量估计<br/>
+ * 执行时按照估计从小到大依次执行，每个阶段只在上一阶段的结果中筛选，结果为空时跳过剩余的阶段<br/>
+ * 上一阶段的结果会传入索引，索引只计算其中的内容，结果远少于索引记录时逐个 id 查找，不需要先计算完整的结果
+ * <p>
+ * 有全文条件时结果按照相关度排列，否则按照 id 排列，全文阶段被跳过时仍按照相关度排列的空结果处理<br/>
+ * 全文阶段只筛选内容，相关度在所有阶段执行后只对最终结果计算，可从上一页的最后一个结果继续分批取得<br/>
+ * 执行后可通过 {@link #explain()} 查看各阶段的顺序、估计、结果数量与耗时
+ *
+ * @author fybug
+ * @version 0.0.6
+ * @see TagIndex
+ * @see TextIndex
+ * @see DateIndex
+ * @see LinkTypeIndex
+ */
+public final
+class QueryPlan {
+    /** 无法估计的阶段，总是最后执行 */
+    public static final long UNKNOWN = Long.MAX_VALUE;
+    /** 候选数量乘以该值仍不超过索引记录数量时逐个 id 查找 */
+    static final int PROBE_RATIO = 16;
+
+    /** 阶段 */
+    private final List<Stage> stages = new ArrayList<>();
+    /** 全文索引 */
+    private TextIndex text;
+    /** 全文查询 */
+    private String query;
+    /** 生成计划时全文查询的版本 */
+    private long textVersion = -1;
+    /** 执行结果 */
+    private IntBitmap result;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>查询阶段.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class Stage {
+        /** 阶段描述 */
+        final String name;
+        /** 结果数量估计 */
+        final long estimate;
+        /** 筛选操作，传入 {@code null} 时从全部内容中筛选 */
+        final UnaryOperator<IntBitmap> run;
+        /** 耗时，未执行为 {@code -1} */
+        long nanos = -1;
+        /** 结果数量 */
+        int out = -1;
+
+        Stage(String name, long estimate, UnaryOperator<IntBitmap> run) {
+            this.name = name;
+            this.estimate = estimate;
+            this.run = run;
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 加入阶段
+     *
+     * @param name     阶段描述
+     * @param estimate 结果数量估计，无法估计使用 {@link #UNKNOWN}
+     * @param run      筛选操作，传入上一阶段的结果，第一个阶段传入 {@code null} 表示全部内容
+     *
+     * @return this
+     */
+    public
+    QueryPlan stage(String name, long estimate, UnaryOperator<IntBitmap> run) {
+        if (result != null)
+            throw new IllegalStateException("plan already executed");
+        stages.add(new Stage(name, estimate, run));
+        return this;
+    }
+
+    /**
+     * 加入全文阶段
+     *
+     * @param index 全文索引
+     * @param query 查询文本
+     *
+     * @return this
+     */
+    public
+    QueryPlan text(TextIndex index, String query) {
+        // 在查询前取得版本，查询期间发生的修改只会让版本显得更旧
+        textVersion = index.version(query);
+        text = index;
+        this.query = query;
+        return stage("text(" + query + ")", index.estimate(query), in -> index.match(query, in));
+    }
+
+    /**
+     * 加入标签阶段
+     * <p>
+     * 为空的标签组不会加入阶段
+     *
+     * @param index 标签索引
+     * @param all   必须拥有的标签
+     * @param any   至少拥有其中一个的标签
+     * @param none  不能拥有的标签
+     *
+     * @return this
+     */
+    public
+    QueryPlan tags(TagIndex index, int[] all, int[] any, int[] none) {
+        if (all != null && all.length > 0) {
+            var est = Arrays.stream(all).mapToLong(index::count).min().orElse(0);
+            stage("tags all" + Arrays.toString(all), est, in -> index.and(all, in));
+        }
+        if (any != null && any.length > 0) {
+            var est = Math.min(index.size(), Arrays.stream(any).mapToLong(index::count).sum());
+            stage("tags any" + Arrays.toString(any), est, in -> index.or(any, in));
+        }
+        if (none != null && none.length > 0) {
+            stage("tags none" + Arrays.toString(none), index.size(), in -> index.not(none, in));
+        }
+        return this;
+    }
+
+    /**
+     * 加入日期阶段
+     *
+     * @param index 日期索引
+     * @param from  起始时间，包含
+     * @param to    结束时间，包含
+     *
+     * @return this
+     */
+    public
+    QueryPlan date(DateIndex index, long from, long to) {
+        return stage("date[" + (from == Long.MIN_VALUE ? "-" : DateIndex.format(from)) + ", "
+                     + (to == Long.MAX_VALUE ? "-" : DateIndex.format(to)) + "]", index.estimate(from, to),
+                     in -> index.range(from, to, in));
+    }
+
+    /**
+     * 加入处理类型阶段
+     * <p>
+     * 为空的类型组不会加入阶段
+     *
+     * @param index 处理类型索引
+     * @param types 属于其中一个的类型
+     *
+     * @return this
+     */
+    public
+    QueryPlan linkType(LinkTypeIndex index, int[] types) {
+        if (types == null || types.length == 0)
+            return this;
+        var est = Math.min(index.size(), Arrays.stream(types).distinct().mapToLong(index::count).sum());
+        return stage("linktype" + Arrays.toString(types), est, in -> index.of(types, in));
+    }
+
+    /**
+     * 获取全文查询的版本
+     *
+     * @return 加入全文阶段时全文查询的版本，没有全文条件时为 {@code -1}
+     *
+     * @see TextIndex#version(String)
+     */
+    public
+    long textVersion() { return textVersion; }
+
+    /** 是否没有阶段 */
+    public
+    boolean isEmpty() { return stages.isEmpty(); }
+
+    /** 是否按照相关度排列 */
+    public
+    boolean isRanked() { return text != null; }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 执行计划
+     *
+     * @return 符合所有阶段的内容 id
+     */
+    public
+    IntBitmap execute() {
+        if (result != null)
+            return result;
+
+        // 估计值相同时保持加入顺序
+        stages.sort(Comparator.comparingLong(s -> s.estimate));
+
+        IntBitmap now = null;
+        for ( Stage s : stages ){
+            var t = System.nanoTime();
+            now = s.run.apply(now);
+            s.nanos = System.nanoTime() - t;
+            s.out = now.cardinality();
+            // 已经没有结果
+            if (now.isEmpty())
+                break;
+        }
+
+        result = now == null ? new IntBitmap() : now;
+        return result;
+    }
+
+    /**
+     * 获取结果的顺序
+     * <p>
+     * 会在未执行时执行计划
+     *
+     * @return 有全文条件时按照相关度排列，否则按照 id 排列
+     */
+    public
+    int[] order() {
+        var r = execute();
+        if (!isRanked())
+            return r.toArray();
+        return hits(Integer.MAX_VALUE, null).stream().mapToInt(TextIndex.Hit::getId).toArray();
+    }
+
+    /**
+     * 获取按照相关度排列的一批结果
+     * <p>
+     * 会在未执行时执行计划，只计算最终结果的相关度并保留 {@code limit} 个
+     *
+     * @param limit 最多返回的数量
+     * @param after 上一批的最后一个结果，{@code null} 为从头开始
+     *
+     * @return 符合所有阶段的全文结果，没有全文条件时为 {@code null}
+     *
+     * @see TextIndex#search(String, int, IntBitmap, TextIndex.Hit)
+     */
+    public
+    List<TextIndex.Hit> hits(int limit, TextIndex.Hit after) {
+        var r = execute();
+        if (!isRanked())
+            return null;
+        if (r.isEmpty())
+            return new ArrayList<>();
+        return text.search(query, limit, r, after);
+    }
+
+    /**
+     * 输出计划
+     *
+     * @return 各阶段的执行顺序、结果数量估计，以及执行后的结果数量与耗时
+     */
+    public
+    String explain() {
+        var b = new StringBuilder("QueryPlan");
+        if (result == null)
+            b.append(" (not executed)");
+        var list = new ArrayList<>(stages);
+        if (result == null)
+            list.sort(Comparator.comparingLong(s -> s.estimate));
+
+        for ( int i = 0; i < list.size(); i++ ){
+            var s = list.get(i);
+            b.append("\n  ").append(i + 1).append(". ").append(s.name)
+             .append(" est=").append(s.estimate == UNKNOWN ? "?" : String.valueOf(s.estimate));
+            if (s.nanos >= 0)
+                b.append(" out=").append(s.out).append(String.format(" %.3fms", s.nanos / 1e6));
+            else if (result != null)
+                b.append(" skipped");
+        }
+        if (isRanked())
+            b.append("\n  order by relevance");
+        return b.toString();
+    }
+
+    @Override
+    public
+    String toString() { return explain(); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 是否逐个 id 查找
+     *
+     * @param in   候选内容，{@code null} 为全部内容
+     * @param size 索引中需要读取的记录数量
+     *
+     * @return 候选远少于需要读取的记录时为 {@code true}
+     */
+    static
+    boolean probe(IntBitmap in, long size) { return in != null && (long) in.cardinality() * PROBE_RATIO <= size; }
+}
@@ -0,0 +1,390 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import fybug.nulll.pdconcurrent.SyLock;
+
+/**
+ * <h2>标签倒排索引.</h2>
+ * <p>
+ * 为每个标签保存拥有该标签的内容 id 位图，标签查询通过位图的交、并、差完成，不需要访问数据库<br/>
+ * 同时保存每个内容的标签，修改与移除内容时只更新受影响的标签
+ * <p>
+ * 可通过 {@link #save(Path)} 写出快照，启动时使用 {@link #load(Path)} 读入，不需要重新扫描全部内容<br/>
+ * 查询返回的位图为副本，可以自由修改，查询可传入候选内容，只在候选中筛选
+ *
+ * @author fybug
+ * @version 0.0.5
+ * @see ContentIndex
+ */
+public final
+class TagIndex {
+    /** 快照文件标识 */
+    private static final int MAGIC = 0x43485449;
+    /** 快照版本 */
+    private static final int VERSION = 1;
+
+    /** 锁 */
+    private final SyLock lock = SyLock.newRWLock();
+    /** 标签 -> 内容 id */
+    private final IntMap<IntBitmap> postings = new IntMap<>();
+    /** 内容 id -> 标签 */
+    private final IntMap<int[]> forward = new IntMap<>();
+    /** 所有已索引的内容 id */
+    private final IntBitmap all = new IntBitmap();
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 设置内容的标签
+     * <p>
+     * 会替换该内容原有的标签
+     *
+     * @param id   内容 id
+     * @param tags 标签 id 组
+     */
+    public
+    void put(int id, int[] tags) {
+        var now = tags == null ? new int[0] : Arrays.stream(tags).distinct().sorted().toArray();
+        lock.write(() -> {
+            unlink(id);
+            for ( int tag : now )
+                postings.computeIfAbsent(tag, k -> new IntBitmap()).add(id);
+            forward.put(id, now);
+            all.add(id);
+        });
+    }
+
+    /**
+     * 移除内容
+     *
+     * @param id 内容 id
+     */
+    public
+    void remove(int id) {
+        lock.write(() -> {
+            unlink(id);
+            forward.remove(id);
+            all.remove(id);
+        });
+    }
+
+    /**
+     * 移除标签
+     * <p>
+     * 从所有内容中移除这些标签
+     *
+     * @param tags 标签 id 组
+     */
+    public
+    void removeTags(int[] tags) {
+        lock.write(() -> {
+            for ( int tag : tags ){
+                var ids = postings.remove(tag);
+                if (ids == null)
+                    continue;
+                ids.forEach(id -> {
+                    var v = forward.get(id);
+                    if (v != null)
+                        forward.put(id, Arrays.stream(v).filter(t -> t != tag).toArray());
+                });
+            }
+        });
+    }
+
+    /** 清空索引 */
+    public
+    void clear() {
+        lock.write(() -> {
+            postings.clear();
+            forward.clear();
+            all.clear();
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取拥有所有指定标签的内容
+     *
+     * @param tags 标签 id 组，为空时返回所有内容
+     *
+     * @return 内容 id 位图
+     */
+    public
+    IntBitmap and(int[] tags) { return and(tags, null); }
+
+    /**
+     * 在候选内容中获取拥有所有指定标签的内容
+     *
+     * @param tags 标签 id 组，为空时返回所有候选内容
+     * @param in   候选内容，{@code null} 为全部内容
+     *
+     * @return 内容 id 位图
+     */
+    public
+    IntBitmap and(int[] tags, IntBitmap in) {
+        return lock.read(() -> {
+            if (tags == null || tags.length == 0)
+                return in == null ? all.copy() : IntBitmap.and(in, all);
+
+            // 从最小的位图开始求交集
+            var list = new IntBitmap[tags.length];
+            for ( int i = 0; i < tags.length; i++ ){
+                list[i] = postings.get(tags[i]);
+                if (list[i] == null)
+                    return new IntBitmap();
+            }
+            Arrays.sort(list, (a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+
+            /* 候选很少时逐个检查 */
+            if (QueryPlan.probe(in, list[0].cardinality())) {
+                var r = new IntBitmap();
+                in.forEach(id -> {
+                    for ( IntBitmap b : list )
+                        if (!b.contains(id))
+                            return;
+                    r.add(id);
+                });
+                return r;
+            }
+
+            var r = in == null ? list[0].copy() : IntBitmap.and(in, list[0]);
+            for ( int i = 1; i < list.length && !r.isEmpty(); i++ )
+                r = IntBitmap.and(r, list[i]);
+            return r;
+        });
+    }
+
+    /**
+     * 获取拥有任意一个指定标签的内容
+     *
+     * @param tags 标签 id 组
+     *
+     * @return 内容 id 位图
+     */
+    public
+    IntBitmap or(int[] tags) { return or(tags, null); }
+
+    /**
+     * 在候选内容中获取拥有任意一个指定标签的内容
+     *
+     * @param tags 标签 id 组
+     * @param in   候选内容，{@code null} 为全部内容
+     *
+     * @return 内容 id 位图
+     */
+    public
+    IntBitmap or(int[] tags, IntBitmap in) {
+        return lock.read(() -> {
+            var r = new IntBitmap();
+            if (tags == null)
+                return r;
+
+            /* 候选很少时逐个检查 */
+            if (QueryPlan.probe(in, all.cardinality())) {
+                var hit = r;
+                in.forEach(id -> {
+                    var v = forward.get(id);
+                    if (v != null)
+                        for ( int tag : tags )
+                            if (Arrays.binarySearch(v, tag) >= 0) {
+                                hit.add(id);
+                                return;
+                            }
+                });
+                return hit;
+            }
+
+            for ( int tag : tags ){
+                var ids = postings.get(tag);
+                if (ids != null)
+                    r = IntBitmap.or(r, in == null ? ids : IntBitmap.and(in, ids));
+            }
+            return r;
+        });
+    }
+
+    /**
+     * 获取不拥有任何指定标签的内容
+     *
+     * @param tags 标签 id 组
+     *
+     * @return 内容 id 位图
+     */
+    public
+    IntBitmap not(int[] tags) { return not(tags, null); }
+
+    /**
+     * 在候选内容中获取不拥有任何指定标签的内容
+     * <p>
+     * 未索引的候选内容视为没有标签
+     *
+     * @param tags 标签 id 组
+     * @param in   候选内容，{@code null} 为全部内容
+     *
+     * @return 内容 id 位图
+     */
+    public
+    IntBitmap not(int[] tags, IntBitmap in) {
+        return lock.read(() -> in == null ? IntBitmap.andNot(all, or(tags)) : IntBitmap.andNot(in, or(tags, in)));
+    }
+
+    /**
+     * 组合查询
+     *
+     * @param all  必须拥有的标签，为空时不限制
+     * @param any  至少拥有其中一个的标签，为空时不限制
+     * @param none 不能拥有的标签，为空时不限制
+     *
+     * @return 内容 id 位图
+     */
+    public
+    IntBitmap query(int[] all, int[] any, int[] none) {
+        return lock.read(() -> {
+            var r = and(all);
+            if (any != null && any.length > 0 && !r.isEmpty())
+                r = IntBitmap.and(r, or(any));
+            if (none != null && none.length > 0 && !r.isEmpty())
+                r = IntBitmap.andNot(r, or(none));
+            return r;
+        });
+    }
+
+    /**
+     * 获取内容的标签
+     *
+     * @param id 内容 id
+     *
+     * @return 标签 id 组，未索引的内容为 {@code null}
+     */
+    public
+    int[] tagsOf(int id) {
+        return lock.read(() -> {
+            var tags = forward.get(id);
+            return tags == null ? null : tags.clone();
+        });
+    }
+
+    /**
+     * 获取拥有标签的内容数量
+     *
+     * @param tag 标签 id
+     *
+     * @return 内容数量
+     */
+    public
+    int count(int tag) {
+        return lock.read(() -> {
+            var ids = postings.get(tag);
+            return ids == null ? 0 : ids.cardinality();
+        });
+    }
+
+    /** 已索引的内容数量 */
+    public
+    int size() { return lock.read(all::cardinality); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 写出快照
+     * <p>
+     * 先写入临时文件再替换，写出中断不会损坏原有的快照
+     *
+     * @param path 快照文件路径
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void save(Path path) throws IOException {
+        lock.tryread(IOException.class, () -> IndexFile.write(path, MAGIC, VERSION, out -> {
+            all.write(out);
+            out.writeInt(postings.size());
+            var keys = new int[postings.size()];
+            var vals = new IntBitmap[keys.length];
+            var n = new int[1];
+            postings.forEach((tag, bits) -> {
+                keys[n[0]] = tag;
+                vals[n[0]++] = bits;
+            });
+            for ( int i = 0; i < keys.length; i++ ){
+                out.writeInt(keys[i]);
+                vals[i].write(out);
+            }
+        }));
+    }
+
+    /**
+     * 读入快照
+     * <p>
+     * 会替换当前的索引，快照不存在或为旧版本时清空索引
+     *
+     * @param path 快照文件路径
+     *
+     * @return 是否读入了快照
+     *
+     * @throws IOException 文件系统错误或快照损坏
+     */
+    public
+    boolean load(Path path) throws IOException {
+        var ids = new IntBitmap();
+        var map = new IntMap<IntBitmap>();
+
+        var file = IndexFile.open(path, MAGIC, VERSION);
+        if (file != null) {
+            try ( var in = file ) {
+                ids = IntBitmap.read(in);
+                for ( int i = in.readInt(); i > 0; i-- ){
+                    var tag = in.readInt();
+                    map.put(tag, IntBitmap.read(in));
+                }
+            }
+        }
+
+        /* 重建内容的标签 */
+        var fw = new IntMap<int[]>(ids.cardinality());
+        ids.forEach(id -> fw.put(id, new int[0]));
+        map.forEach((tag, bits) -> bits.forEach(id -> fw.put(id, concat(fw.get(id), new int[]{tag}))));
+        fw.forEach((k, v) -> Arrays.sort(v));
+
+        var nowIds = ids;
+        lock.write(() -> {
+            postings.clear();
+            map.forEach(postings::put);
+            forward.clear();
+            fw.forEach(forward::put);
+            all.clear();
+            nowIds.forEach(all::add);
+        });
+        return file != null;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 从标签的位图中移除内容
+     *
+     * @param id 内容 id
+     */
+    private
+    void unlink(int id) {
+        var old = forward.get(id);
+        if (old == null)
+            return;
+        for ( int tag : old ){
+            var ids = postings.get(tag);
+            if (ids != null && ids.remove(id) && ids.isEmpty())
+                postings.remove(tag);
+        }
+    }
+
+    /** 连接数组 */
+    private static
+    int[] concat(int[] a, int[] b) {
+        var r = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+}
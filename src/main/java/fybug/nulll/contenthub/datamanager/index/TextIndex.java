@@ -0,0 +1,708 @@
+package fybug.nulll.contenthub.datamanager.index;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import fybug.nulll.pdconcurrent.SyLock;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * <h2>全文索引.</h2>
+ * <p>
+ * 对内容的标题与描述建立倒排索引，查询时所有词都需要匹配，结果按照 BM25F 相关度排序，标题的权重高于描述<br/>
+ * 文本先经过 NFKC 规范化与小写转换，连续的拉丁字母与数字作为一个词，
+ * 连续的中日韩文字按照相邻两字切分，单独出现的一个字作为一个词<br/>
+ * 建立索引时中日韩文字的每个字也作为一个词，查询单个字时可以匹配到词中间的字
+ * <p>
+ * 每个内容按照字段保存切分后的词，修改时只需要更新受影响的倒排表，修改记录中为 {@code null} 的字段保持不变<br/>
+ * 每次修改都会增加 {@link #version()} ，相关度只在同一版本内可比较，
+ * {@link #version(String)} 只在修改涉及包含查询词的内容时增加<br/>
+ * 查询可传入候选内容，只计算候选的相关度，候选很少时直接在倒排表中逐个查找候选<br/>
+ * 查询可传入上一页的最后一个结果，只保留排在其后的结果，分页时不需要取得之前的全部结果
+ * <p>
+ * 快照只保存各内容切分后的词与索引版本，读入时重建倒排表，读入后的版本大于快照中的版本
+ *
+ * @author fybug
+ * @version 0.0.7
+ * @see ContentIndex
+ */
+public final
+class TextIndex {
+    /** 快照文件标识 */
+    private static final int MAGIC = 0x43485458;
+    /** 快照版本 */
+    private static final int VERSION = 2;
+    /** 标题权重 */
+    private static final double TITLE_WEIGHT = 2.0;
+    /** 描述权重 */
+    private static final double DES_WEIGHT = 1.0;
+    /** BM25 词频饱和参数 */
+    private static final double K1 = 1.2;
+    /** BM25 长度归一参数 */
+    private static final double B = 0.75;
+
+    /** 锁 */
+    private final SyLock lock = SyLock.newRWLock();
+    /** 词 -> 倒排表 */
+    private final Map<String, Posting> postings = new HashMap<>();
+    /** 内容 id -> 各字段的词 */
+    private final IntMap<Doc> docs = new IntMap<>();
+    /** 标题总词数 */
+    private long titleTotal = 0;
+    /** 描述总词数 */
+    private long desTotal = 0;
+    /** 索引版本 */
+    private volatile long version = 0;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>查询结果.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @AllArgsConstructor
+    @Data
+    public static final
+    class Hit {
+        /** 内容 id */
+        private final int id;
+        /** 相关度 */
+        private final double score;
+    }
+
+    /**
+     * <h2>倒排表交集接收接口.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @FunctionalInterface
+    private
+    interface Visitor {
+        void accept(int id, int[] tfs);
+    }
+
+    /**
+     * <h2>内容的字段.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @AllArgsConstructor
+    private static final
+    class Doc {
+        /** 标题的词 */
+        final String[] title;
+        /** 描述的词 */
+        final String[] des;
+    }
+
+    /**
+     * <h2>倒排表.</h2>
+     * <p>
+     * 按照内容 id 排序，词频的高 16 位为标题中的次数，低 16 位为描述中的次数
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class Posting {
+        /** 内容 id */
+        int[] ids = new int[2];
+        /** 词频 */
+        int[] tfs = new int[2];
+        /** 数量 */
+        int size = 0;
+        /** 最后修改时的索引版本 */
+        long version = 0;
+
+        void put(int id, int tf) {
+            var i = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                tfs[i] = tf;
+                return;
+            }
+            i = -i - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+                tfs = Arrays.copyOf(tfs, size << 1);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            System.arraycopy(tfs, i, tfs, i + 1, size - i);
+            ids[i] = id;
+            tfs[i] = tf;
+            size++;
+        }
+
+        void remove(int id) {
+            var i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0)
+                return;
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(tfs, i + 1, tfs, i, size - i - 1);
+            size--;
+        }
+
+        /** 从 {@code from} 开始查找，返回下标或 {@code -(插入位置) - 1} */
+        int seek(int from, int id) { return Arrays.binarySearch(ids, from, size, id); }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 设置内容的文本
+     * <p>
+     * 会替换该内容原有的文本
+     *
+     * @param id    内容 id
+     * @param title 标题
+     * @param des   描述
+     */
+    public
+    void put(int id, String title, String des) {
+        var t = tokenize(title, true).toArray(new String[0]);
+        var d = tokenize(des, true).toArray(new String[0]);
+        lock.write(() -> link(id, t, d));
+    }
+
+    /**
+     * 修改内容的文本
+     * <p>
+     * 未索引的内容只有在两个字段都给出时才会加入，否则无法得到完整的文本，不修改索引
+     *
+     * @param id    内容 id
+     * @param title 新的标题，{@code null} 为不修改
+     * @param des   新的描述，{@code null} 为不修改
+     *
+     * @return 是否已更新索引
+     */
+    public
+    boolean update(int id, String title, String des) {
+        var t = title == null ? null : tokenize(title, true).toArray(new String[0]);
+        var d = des == null ? null : tokenize(des, true).toArray(new String[0]);
+        return lock.write(() -> {
+            var old = docs.get(id);
+            if (old == null && (t == null || d == null))
+                return false;
+            link(id, t != null ? t : old.title, d != null ? d : old.des);
+            return true;
+        });
+    }
+
+    /**
+     * 移除内容
+     *
+     * @param id 内容 id
+     */
+    public
+    void remove(int id) { lock.write(() -> unlink(id)); }
+
+    /** 清空索引 */
+    public
+    void clear() {
+        lock.write(() -> {
+            postings.clear();
+            docs.clear();
+            titleTotal = desTotal = 0;
+            version++;
+        });
+    }
+
+    /** 已索引的内容数量 */
+    public
+    int size() { return lock.read(docs::size); }
+
+    /**
+     * 获取索引版本
+     * <p>
+     * 每次修改后增加，版本相同时相同查询的相关度与顺序不变
+     *
+     * @return 索引版本
+     */
+    public
+    long version() { return version; }
+
+    /**
+     * 获取查询的版本
+     * <p>
+     * 为各查询词的倒排表最后修改时的索引版本，只在修改涉及包含查询词的内容时增加，版本相同时匹配的内容与词频不变<br/>
+     * 其他内容的修改只会通过内容总数与平均长度让相关度有微小的变化
+     *
+     * @param query 查询文本
+     *
+     * @return 查询的版本，有查询词不存在时为索引版本
+     */
+    public
+    long version(String query) {
+        var terms = tokenize(query);
+        return lock.read(() -> {
+            var v = 0L;
+            for ( String term : terms ){
+                var p = postings.get(term);
+                if (p == null)
+                    return version;
+                v = Math.max(v, p.version);
+            }
+            return terms.isEmpty() ? version : v;
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取匹配的内容
+     *
+     * @param query 查询文本
+     *
+     * @return 包含所有查询词的内容 id
+     */
+    public
+    IntBitmap match(String query) { return match(query, null); }
+
+    /**
+     * 在候选内容中获取匹配的内容
+     * <p>
+     * 只求倒排表的交集，不计算相关度
+     *
+     * @param query 查询文本
+     * @param in    候选内容，{@code null} 为全部内容
+     *
+     * @return 包含所有查询词的内容 id
+     */
+    public
+    IntBitmap match(String query, IntBitmap in) {
+        var terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        var r = new IntBitmap();
+        if (terms.isEmpty())
+            return r;
+        return lock.read(() -> {
+            var list = postingsOf(terms);
+            if (list != null)
+                scan(list, in, (id, tfs) -> r.add(id));
+            return r;
+        });
+    }
+
+    /**
+     * 估算匹配的数量
+     *
+     * @param query 查询文本
+     *
+     * @return 匹配数量的上限，即最少出现的查询词的内容数
+     */
+    public
+    int estimate(String query) {
+        var terms = tokenize(query);
+        return lock.read(() -> {
+            if (terms.isEmpty())
+                return 0;
+            var min = Integer.MAX_VALUE;
+            for ( String term : terms ){
+                var p = postings.get(term);
+                min = Math.min(min, p == null ? 0 : p.size);
+            }
+            return min;
+        });
+    }
+
+    /**
+     * 查询并按照相关度排序
+     *
+     * @param query 查询文本
+     * @param limit 最多返回的数量
+     *
+     * @return 按照相关度从高到低排列的结果，相关度相同时按照 id 排列
+     */
+    public
+    List<Hit> search(String query, int limit) { return search(query, limit, null); }
+
+    /**
+     * 在候选内容中查询并按照相关度排序
+     * <p>
+     * 相关度的统计仍基于全部内容，与不限制候选时相同
+     *
+     * @param query 查询文本
+     * @param limit 最多返回的数量
+     * @param in    候选内容，{@code null} 为全部内容
+     *
+     * @return 按照相关度从高到低排列的结果，相关度相同时按照 id 排列
+     */
+    public
+    List<Hit> search(String query, int limit, IntBitmap in) { return search(query, limit, in, null); }
+
+    /**
+     * 在候选内容中查询排在指定结果之后的内容
+     * <p>
+     * 只保留排在 {@code after} 之后的 {@code limit} 个结果，传入上一页的最后一个结果即可取得下一页
+     *
+     * @param query 查询文本
+     * @param limit 最多返回的数量
+     * @param in    候选内容，{@code null} 为全部内容
+     * @param after 上一页的最后一个结果，{@code null} 为从头开始
+     *
+     * @return 按照相关度从高到低排列的结果，相关度相同时按照 id 排列
+     */
+    public
+    List<Hit> search(String query, int limit, IntBitmap in, Hit after) {
+        var terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty() || limit <= 0)
+            return List.of();
+
+        return lock.read(() -> {
+            var list = postingsOf(terms);
+            if (list == null)
+                return List.<Hit>of();
+
+            var n = docs.size();
+            var idf = new double[list.length];
+            for ( int i = 0; i < list.length; i++ )
+                idf[i] = Math.log(1 + (n - list[i].size + 0.5) / (list[i].size + 0.5));
+            var avgT = Math.max(1.0, (double) titleTotal / n);
+            var avgD = Math.max(1.0, (double) desTotal / n);
+
+            Comparator<Hit> order = Comparator.comparingDouble(Hit::getScore)
+                                              .thenComparing(Comparator.comparingInt(Hit::getId).reversed());
+            var heap = new PriorityQueue<>(order);
+            scan(list, in, (id, tfs) -> {
+                /* 计算相关度 */
+                var doc = docs.get(id);
+                var nt = 1 - B + B * doc.title.length / avgT;
+                var nd = 1 - B + B * doc.des.length / avgD;
+                var score = 0.0;
+                for ( int i = 0; i < list.length; i++ ){
+                    var tf = TITLE_WEIGHT * (tfs[i] >>> 16) / nt + DES_WEIGHT * (tfs[i] & 0xffff) / nd;
+                    score += idf[i] * tf * (K1 + 1) / (tf + K1);
+                }
+                // 跳过上一页及之前的结果
+                if (after != null && (score > after.getScore() || (score == after.getScore() && id <= after.getId())))
+                    return;
+
+                // 保留相关度最高的结果
+                heap.add(new Hit(id, score));
+                if (heap.size() > limit)
+                    heap.poll();
+            });
+
+            var r = new ArrayList<>(heap);
+            r.sort(order.reversed());
+            return r;
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 写出快照
+     * <p>
+     * 先写入临时文件再替换，写出中断不会损坏原有的快照
+     *
+     * @param path 快照文件路径
+     *
+     * @throws IOException 文件系统错误
+     */
+    public
+    void save(Path path) throws IOException {
+        lock.tryread(IOException.class, () -> IndexFile.write(path, MAGIC, VERSION, out -> {
+            out.writeLong(version);
+            var keys = new int[docs.size()];
+            var vals = new Doc[keys.length];
+            var n = new int[1];
+            docs.forEach((id, doc) -> {
+                keys[n[0]] = id;
+                vals[n[0]++] = doc;
+            });
+            out.writeInt(keys.length);
+            for ( int i = 0; i < keys.length; i++ ){
+                out.writeInt(keys[i]);
+                writeTerms(out, vals[i].title);
+                writeTerms(out, vals[i].des);
+            }
+        }));
+    }
+
+    /**
+     * 读入快照
+     * <p>
+     * 会替换当前的索引，快照不存在或为旧版本时清空索引
+     *
+     * @param path 快照文件路径
+     *
+     * @return 是否读入了快照
+     *
+     * @throws IOException 文件系统错误或快照损坏
+     */
+    public
+    boolean load(Path path) throws IOException {
+        var ids = new int[0];
+        var list = new Doc[0];
+        var ver = 0L;
+
+        var file = IndexFile.open(path, MAGIC, VERSION);
+        if (file != null) {
+            try ( var in = file ) {
+                ver = in.readLong();
+                var n = in.readInt();
+                ids = new int[n];
+                list = new Doc[n];
+                for ( int i = 0; i < n; i++ ){
+                    ids[i] = in.readInt();
+                    list[i] = new Doc(readTerms(in), readTerms(in));
+                }
+            }
+        }
+
+        var nowIds = ids;
+        var nowDocs = list;
+        var nowVer = ver;
+        lock.write(() -> {
+            postings.clear();
+            docs.clear();
+            titleTotal = desTotal = 0;
+            for ( int i = 0; i < nowIds.length; i++ )
+                link(nowIds[i], nowDocs[i].title, nowDocs[i].des);
+            // 读入前发放的令牌都视为过期
+            version = Math.max(version, nowVer) + 1;
+            for ( Posting p : postings.values() )
+                p.version = version;
+        });
+        return file != null;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 切分文本
+     *
+     * @param text 文本
+     *
+     * @return 切分后的词，按照出现顺序排列
+     */
+    public static
+    List<String> tokenize(String text) { return tokenize(text, false); }
+
+    /**
+     * 切分文本
+     *
+     * @param text  文本
+     * @param index 是否为建立索引切分，是则额外输出中日韩文字的每个字
+     *
+     * @return 切分后的词
+     */
+    private static
+    List<String> tokenize(String text, boolean index) {
+        var r = new ArrayList<String>();
+        if (text == null || text.isEmpty())
+            return r;
+        text = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+
+        var word = new StringBuilder();
+        var cjk = new ArrayList<String>();
+        for ( int i = 0; i < text.length(); ){
+            var cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+
+            if (isCjk(cp)) {
+                flushWord(word, r);
+                cjk.add(new String(Character.toChars(cp)));
+            } else {
+                flushCjk(cjk, r, index);
+                if (Character.isLetterOrDigit(cp))
+                    word.appendCodePoint(cp);
+                else
+                    flushWord(word, r);
+            }
+        }
+        flushWord(word, r);
+        flushCjk(cjk, r, index);
+        return r;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 建立内容的倒排记录
+     *
+     * @param id    内容 id
+     * @param title 标题的词
+     * @param des   描述的词
+     */
+    private
+    void link(int id, String[] title, String[] des) {
+        unlink(id);
+
+        /* 统计词频 */
+        var tf = new LinkedHashMap<String, Integer>();
+        for ( String t : title )
+            tf.merge(t, 1 << 16, (a, b) -> (a >>> 16) == 0xffff ? a : a + b);
+        for ( String t : des )
+            tf.merge(t, 1, (a, b) -> (a & 0xffff) == 0xffff ? a : a + b);
+
+        var ver = ++version;
+        tf.forEach((term, v) -> {
+            var p = postings.computeIfAbsent(term, k -> new Posting());
+            p.put(id, v);
+            p.version = ver;
+        });
+
+        docs.put(id, new Doc(title, des));
+        titleTotal += title.length;
+        desTotal += des.length;
+    }
+
+    /**
+     * 移除内容的倒排记录
+     *
+     * @param id 内容 id
+     */
+    private
+    void unlink(int id) {
+        var old = docs.remove(id);
+        if (old == null)
+            return;
+
+        var ver = ++version;
+        var terms = new LinkedHashSet<String>();
+        terms.addAll(Arrays.asList(old.title));
+        terms.addAll(Arrays.asList(old.des));
+        for ( String term : terms ){
+            var p = postings.get(term);
+            if (p == null)
+                continue;
+            p.remove(id);
+            p.version = ver;
+            if (p.size == 0)
+                postings.remove(term);
+        }
+        titleTotal -= old.title.length;
+        desTotal -= old.des.length;
+    }
+
+    /**
+     * 取得查询词的倒排表
+     *
+     * @param terms 查询词，不能重复
+     *
+     * @return 按照长度从短到长排列的倒排表，有词不存在时为 {@code null}
+     */
+    private
+    Posting[] postingsOf(List<String> terms) {
+        var list = new Posting[terms.size()];
+        for ( int i = 0; i < list.length; i++ ){
+            list[i] = postings.get(terms.get(i));
+            if (list[i] == null)
+                return null;
+        }
+        // 从最短的开始求交集
+        Arrays.sort(list, Comparator.comparingInt(p -> p.size));
+        return list;
+    }
+
+    /**
+     * 遍历包含所有词的内容
+     * <p>
+     * 候选很少时按照候选逐个查找，否则按照最短的倒排表跳过不在候选中的内容
+     *
+     * @param list 按照长度从短到长排列的倒排表
+     * @param in   候选内容，{@code null} 为全部内容
+     * @param v    接收内容 id 与各倒排表中的词频，词频数组会被复用
+     */
+    private static
+    void scan(Posting[] list, IntBitmap in, Visitor v) {
+        var pos = new int[list.length];
+        var tfs = new int[list.length];
+        var first = list[0];
+        var cand = QueryPlan.probe(in, first.size) ? in.toArray() : null;
+        var count = cand == null ? first.size : cand.length;
+        var start = cand == null ? 1 : 0;
+        next:
+        for ( int k = 0; k < count; k++ ){
+            int id;
+            if (cand == null) {
+                id = first.ids[k];
+                if (in != null && !in.contains(id))
+                    continue;
+                tfs[0] = first.tfs[k];
+            } else
+                id = cand[k];
+
+            for ( int i = start; i < list.length; i++ ){
+                var j = list[i].seek(pos[i], id);
+                if (j < 0) {
+                    pos[i] = -j - 1;
+                    if (pos[i] >= list[i].size)
+                        break next;
+                    continue next;
+                }
+                pos[i] = j;
+                tfs[i] = list[i].tfs[j];
+            }
+            v.accept(id, tfs);
+        }
+    }
+
+    /** 写出词组 */
+    private static
+    void writeTerms(DataOutput out, String[] terms) throws IOException {
+        out.writeInt(terms.length);
+        for ( String t : terms ){
+            var b = t.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+
+    /** 读取词组 */
+    private static
+    String[] readTerms(DataInput in) throws IOException {
+        var r = new String[in.readInt()];
+        for ( int i = 0; i < r.length; i++ ){
+            var b = new byte[in.readInt()];
+            in.readFully(b);
+            r[i] = new String(b, StandardCharsets.UTF_8);
+        }
+        return r;
+    }
+
+    /** 是否为中日韩文字 */
+    private static
+    boolean isCjk(int cp) {
+        var s = Character.UnicodeScript.of(cp);
+        return s == Character.UnicodeScript.HAN || s == Character.UnicodeScript.HIRAGANA
+               || s == Character.UnicodeScript.KATAKANA || s == Character.UnicodeScript.HANGUL;
+    }
+
+    /** 输出拉丁词 */
+    private static
+    void flushWord(StringBuilder word, List<String> r) {
+        if (word.length() > 0) {
+            r.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    /** 按照相邻两字输出中日韩文字，单独的一个字或建立索引时也输出每个字 */
+    private static
+    void flushCjk(List<String> cjk, List<String> r, boolean index) {
+        if (index || cjk.size() == 1)
+            r.addAll(cjk);
+        for ( int i = 1; i < cjk.size(); i++ )
+            r.add(cjk.get(i - 1) + cjk.get(i));
+        cjk.clear();
+    }
+}
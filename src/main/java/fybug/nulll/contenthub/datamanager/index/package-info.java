@@ -0,0 +1,9 @@
+/**
+ * <h2>内容索引相关包.</h2>
+ * <p>
+ * 在进程内维护内容的查询索引，用于在不访问数据库的情况下完成 {@link fybug.nulll.contenthub.datamanager.content.DataGet} 的条件查询
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+package fybug.nulll.contenthub.datamanager.index;
@@ -0,0 +1,82 @@
+package fybug.nulll.contenthub.datamanager.metrics;
+/**
+ * <h2>指标记录入口.</h2>
+ * <p>
+ * 库内通过该类记录指标，默认使用 {@link Metrics#NOOP} ，未接入指标系统时只有一次字段读取与判断的开销<br/>
+ * 计时使用 {@link #start()} 与 {@link #time(String, long)} 配对，未接入时不会读取时钟
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+public final
+class Instrument {
+    /** 当前的指标记录接口 */
+    private static volatile Metrics current = Metrics.NOOP;
+
+    private
+    Instrument() {}
+
+    /**
+     * 接入指标系统
+     *
+     * @param metrics 指标记录接口，为 {@code null} 时恢复为不记录
+     */
+    public static
+    void install(Metrics metrics) { current = metrics == null ? Metrics.NOOP : metrics; }
+
+    /** 当前的指标记录接口 */
+    public static
+    Metrics get() { return current; }
+
+    /** 是否在记录数据 */
+    public static
+    boolean enabled() { return current.enabled(); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 增加计数
+     *
+     * @param name  指标名称
+     * @param delta 增加的数量
+     */
+    public static
+    void count(String name, long delta) {
+        var m = current;
+        if (m.enabled())
+            m.count(name, delta);
+    }
+
+    /**
+     * 记录分布中的一个值
+     *
+     * @param name  指标名称
+     * @param value 值
+     */
+    public static
+    void record(String name, long value) {
+        var m = current;
+        if (m.enabled())
+            m.record(name, value);
+    }
+
+    /**
+     * 开始计时
+     *
+     * @return 开始的时间，不记录时为 {@code 0}
+     */
+    public static
+    long start() { return current.enabled() ? System.nanoTime() : 0; }
+
+    /**
+     * 结束计时并记录
+     *
+     * @param name  指标名称
+     * @param start {@link #start()} 返回的时间，为 {@code 0} 时不记录
+     */
+    public static
+    void time(String name, long start) {
+        if (start != 0)
+            current.time(name, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,194 @@
+package fybug.nulll.contenthub.datamanager.metrics;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * <h2>内存指标记录.</h2>
+ * <p>
+ * 将指标保存在内存中，可随时读取当前的计数与分布摘要，用于测试与调试<br/>
+ * 分布按照 2 的幂分桶，百分位为所在桶的上界
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see Instrument#install(Metrics)
+ */
+public
+class MemoryMetrics implements Metrics {
+    /** 计数 */
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    /** 分布 */
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>分布摘要.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    @AllArgsConstructor
+    @Data
+    public static final
+    class Summary {
+        /** 记录数量 */
+        private long count;
+        /** 总和 */
+        private long sum;
+        /** 最小值 */
+        private long min;
+        /** 最大值 */
+        private long max;
+        /** 50 百分位 */
+        private long p50;
+        /** 99 百分位 */
+        private long p99;
+
+        /**
+         * 平均值
+         *
+         * @return 平均值，没有记录时为 {@code 0}
+         */
+        public
+        double mean() { return count == 0 ? 0 : (double) sum / count; }
+    }
+
+    /**
+     * <h2>分布.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     */
+    private static final
+    class Histogram {
+        /** 记录数量 */
+        final LongAdder count = new LongAdder();
+        /** 总和 */
+        final LongAdder sum = new LongAdder();
+        /** 最小值 */
+        final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        /** 最大值 */
+        final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        /** 分桶，第 i 个桶为 [2^(i-1), 2^i) */
+        final AtomicLongArray buckets = new AtomicLongArray(65);
+
+        void add(long v) {
+            count.increment();
+            sum.add(v);
+            if (v < min.get())
+                min.accumulateAndGet(v, Math::min);
+            if (v > max.get())
+                max.accumulateAndGet(v, Math::max);
+            buckets.incrementAndGet(v <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(v));
+        }
+
+        Summary summary() {
+            var n = count.sum();
+            if (n == 0)
+                return new Summary(0, 0, 0, 0, 0, 0);
+            return new Summary(n, sum.sum(), min.get(), max.get(), percentile(n, 0.5), percentile(n, 0.99));
+        }
+
+        /** 百分位所在桶的上界，不超过最大值 */
+        long percentile(long n, double q) {
+            var rank = (long) Math.ceil(n * q);
+            long seen = 0;
+            for ( int i = 0; i < buckets.length(); i++ ){
+                seen += buckets.get(i);
+                if (seen >= rank)
+                    return Math.min(max.get(), i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+            return max.get();
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    void count(String name, long delta) {
+        var c = counters.get(name);
+        if (c == null)
+            c = counters.computeIfAbsent(name, k -> new LongAdder());
+        c.add(delta);
+    }
+
+    @Override
+    public
+    void record(String name, long value) {
+        var h = histograms.get(name);
+        if (h == null)
+            h = histograms.computeIfAbsent(name, k -> new Histogram());
+        h.add(value);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取计数
+     *
+     * @param name 指标名称
+     *
+     * @return 计数，没有记录为 {@code 0}
+     */
+    public
+    long counter(String name) {
+        var c = counters.get(name);
+        return c == null ? 0 : c.sum();
+    }
+
+    /**
+     * 获取分布摘要
+     *
+     * @param name 指标名称
+     *
+     * @return 摘要，没有记录时各项为 {@code 0}
+     */
+    public
+    Summary summary(String name) {
+        var h = histograms.get(name);
+        return h == null ? new Summary(0, 0, 0, 0, 0, 0) : h.summary();
+    }
+
+    /**
+     * 获取所有计数
+     *
+     * @return 指标名称 -> 计数，按照名称排列
+     */
+    public
+    Map<String, Long> counters() {
+        var r = new TreeMap<String, Long>();
+        counters.forEach((k, v) -> r.put(k, v.sum()));
+        return r;
+    }
+
+    /**
+     * 获取所有分布摘要
+     *
+     * @return 指标名称 -> 摘要，按照名称排列
+     */
+    public
+    Map<String, Summary> summaries() {
+        var r = new TreeMap<String, Summary>();
+        histograms.forEach((k, v) -> r.put(k, v.summary()));
+        return r;
+    }
+
+    /** 清空所有记录 */
+    public
+    void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    @Override
+    public
+    String toString() { return "MemoryMetrics{counters=" + counters() + ", histograms=" + summaries() + "}"; }
+}
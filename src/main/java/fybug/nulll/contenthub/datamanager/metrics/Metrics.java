@@ -0,0 +1,66 @@
+package fybug.nulll.contenthub.datamanager.metrics;
+/**
+ * <h2>指标记录接口.</h2>
+ * <p>
+ * 由指标系统实现，接收库内各处记录的计数、分布与计时<br/>
+ * 实现需要是线程安全的，并且不能阻塞调用的线程
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see Instrument
+ * @see MemoryMetrics
+ */
+public
+interface Metrics {
+    /** 不记录任何数据的实现 */
+    Metrics NOOP = new Metrics() {
+        @Override
+        public
+        void count(String name, long delta) {}
+
+        @Override
+        public
+        void record(String name, long value) {}
+
+        @Override
+        public
+        boolean enabled() { return false; }
+    };
+
+    /**
+     * 增加计数
+     *
+     * @param name  指标名称
+     * @param delta 增加的数量
+     */
+    void count(String name, long delta);
+
+    /**
+     * 记录分布中的一个值
+     *
+     * @param name  指标名称
+     * @param value 值
+     */
+    void record(String name, long value);
+
+    /**
+     * 记录耗时
+     * <p>
+     * 默认作为分布记录
+     *
+     * @param name  指标名称
+     * @param nanos 耗时，单位为纳秒
+     */
+    default
+    void time(String name, long nanos) { record(name, nanos); }
+
+    /**
+     * 是否记录数据
+     * <p>
+     * 不记录时调用处会跳过计时等额外的操作
+     *
+     * @return 是否记录
+     */
+    default
+    boolean enabled() { return true; }
+}
@@ -0,0 +1,10 @@
+/**
+ * <h2>运行指标相关包.</h2>
+ * <p>
+ * 提供计数、分布与计时的记录接口，默认不记录任何数据，通过 {@link fybug.nulll.contenthub.datamanager.metrics.Instrument#install(fybug.nulll.contenthub.datamanager.metrics.Metrics)}
+ * 接入实际的指标系统
+ *
+ * @author fybug
+ * @version 0.0.1
+ */
+package fybug.nulll.contenthub.datamanager.metrics;